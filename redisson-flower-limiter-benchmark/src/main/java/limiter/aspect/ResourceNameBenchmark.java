@@ -0,0 +1,87 @@
+package limiter.aspect;
+
+import limiter.annotation.Limiter;
+import limiter.benchmark.LimitedService;
+import limiter.metrics.ResourceMetrics;
+import limiter.util.MethodUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流控器名称拼接与方法签名解析的开销
+ * 与LimiterPlan同包，直接使用切面解析出的执行计划
+ *
+ * @author kana
+ * @date 2026/10/18 18:20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceNameBenchmark {
+
+    private Method method;
+
+    private LimiterPlan staticPlan;
+
+    private LimiterPlan argumentPlan;
+
+    private LimiterPlan nestedPlan;
+
+    private Object[] args;
+
+    private Object[] nestedArgs;
+
+    @Setup
+    public void setUp() throws Exception {
+        method = LimitedService.class.getMethod("dynamicName", String.class);
+        staticPlan = plan(LimitedService.class.getMethod("staticName", String.class));
+        argumentPlan = plan(method);
+        nestedPlan = plan(LimitedService.class.getMethod("nestedName", LimitedService.Request.class));
+        args = new Object[]{"user42"};
+        nestedArgs = new Object[]{new LimitedService.Request("tenant42")};
+    }
+
+    private static LimiterPlan plan(Method method) {
+        Limiter limiter = method.getAnnotation(Limiter.class);
+        ArgumentExtractor[] extractors = new ArgumentExtractor[limiter.args().length];
+        for (int i = 0; i < extractors.length; i++) {
+            extractors[i] = ArgumentExtractor.compile(limiter.args()[i]);
+        }
+        return new LimiterPlan(method, limiter, MethodUtil.resolveMethodName(method), limiter.value(), extractors,
+                null, null, "", ResourceMetrics.NOOP);
+    }
+
+    @Benchmark
+    public String staticName() {
+        return staticPlan.getResourceName(args);
+    }
+
+    @Benchmark
+    public String argumentName() {
+        return argumentPlan.getResourceName(args);
+    }
+
+    @Benchmark
+    public String nestedName() {
+        return nestedPlan.getResourceName(nestedArgs);
+    }
+
+    @Benchmark
+    public String resolveMethodName() {
+        return MethodUtil.resolveMethodName(method);
+    }
+}
@@ -0,0 +1,106 @@
+package limiter.benchmark;
+
+import limiter.api.impl.RedissonLimiterServiceImpl;
+import limiter.aspect.LimiterAspect;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.context.support.StaticApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LimiterAspect.invokeLimiter 的开销
+ * 目标对象通过Spring AOP代理织入切面，plain为不经过切面的直接调用作为对照
+ *
+ * @author kana
+ * @date 2026/10/18 18:20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AspectBenchmark {
+
+    private static final int KEY_COUNT = 1024;
+
+    private BenchmarkRedis redis;
+
+    private RedissonLimiterServiceImpl limiterService;
+
+    private LimitedService target;
+
+    private LimitedService proxy;
+
+    private String[] userIds;
+
+    private LimitedService.Request[] requests;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        redis = BenchmarkRedis.start();
+        limiterService = new RedissonLimiterServiceImpl(redis.getClient());
+        target = new LimitedService();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new LimiterAspect(limiterService, new StaticApplicationContext()));
+        proxy = factory.getProxy();
+        userIds = new String[KEY_COUNT];
+        requests = new LimitedService.Request[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            userIds[i] = "user" + i;
+            requests[i] = new LimitedService.Request("tenant" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        limiterService.destroy();
+        redis.close();
+    }
+
+    private int nextIndex() {
+        return ThreadLocalRandom.current().nextInt(KEY_COUNT);
+    }
+
+    @Benchmark
+    public Object plain() {
+        return target.plain(userIds[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object staticName() {
+        return proxy.staticName(userIds[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object dynamicName() {
+        return proxy.dynamicName(userIds[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object nestedName() {
+        return proxy.nestedName(requests[nextIndex()]);
+    }
+
+    /**
+     * 令牌耗尽后每次调用都执行降级方法
+     */
+    @Benchmark
+    public Object fallback() {
+        return proxy.denied(userIds[nextIndex()]);
+    }
+}
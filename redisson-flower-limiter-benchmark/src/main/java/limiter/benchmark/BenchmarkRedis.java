@@ -0,0 +1,60 @@
+package limiter.benchmark;
+
+import org.redisson.Redisson;
+import org.redisson.api.RedissonClient;
+import org.redisson.config.Config;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+/**
+ * 基准测试使用的Redis
+ * 默认在进程内启动一个Redis，可通过 -Dlimiter.redis.address=redis://host:port 指向已有实例
+ *
+ * @author kana
+ * @date 2026/10/18 18:20
+ */
+
+final class BenchmarkRedis implements AutoCloseable {
+
+    private static final String ADDRESS_PROPERTY = "limiter.redis.address";
+
+    private final RedisServer server;
+
+    private final RedissonClient client;
+
+    private BenchmarkRedis(RedisServer server, String address) {
+        this.server = server;
+        Config config = new Config();
+        config.useSingleServer().setAddress(address);
+        this.client = Redisson.create(config);
+        this.client.getKeys().flushall();
+    }
+
+    static BenchmarkRedis start() throws IOException {
+        String address = System.getProperty(ADDRESS_PROPERTY);
+        if (address != null) {
+            return new BenchmarkRedis(null, address);
+        }
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RedisServer server = new RedisServer(port);
+        server.start();
+        return new BenchmarkRedis(server, "redis://127.0.0.1:" + port);
+    }
+
+    RedissonClient getClient() {
+        return client;
+    }
+
+    @Override
+    public void close() throws IOException {
+        client.shutdown();
+        if (server != null) {
+            server.stop();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package limiter.benchmark;
+
+import limiter.annotation.Limiter;
+import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateType;
+
+/**
+ * 被流控的目标对象 使用本地令牌桶且速率足够大，测量的是切面本身的开销
+ *
+ * @author kana
+ * @date 2026/10/18 18:20
+ */
+
+public class LimitedService {
+
+    /**
+     * 每毫秒产生的令牌数 基准测试期间不会被流控
+     */
+    static final long UNLIMITED_RATE = 1_000_000;
+
+    public String plain(String userId) {
+        return userId;
+    }
+
+    @Limiter(value = "static", rate = UNLIMITED_RATE, rateIntervalUnit = RateIntervalUnit.MILLISECONDS, rateType = RateType.PER_CLIENT)
+    public String staticName(String userId) {
+        return userId;
+    }
+
+    @Limiter(value = "dynamic", args = "#p0", rate = UNLIMITED_RATE, rateIntervalUnit = RateIntervalUnit.MILLISECONDS, rateType = RateType.PER_CLIENT)
+    public String dynamicName(String userId) {
+        return userId;
+    }
+
+    @Limiter(value = "nested", args = "#p0.tenantId", rate = UNLIMITED_RATE, rateIntervalUnit = RateIntervalUnit.MILLISECONDS, rateType = RateType.PER_CLIENT)
+    public String nestedName(Request request) {
+        return request.getTenantId();
+    }
+
+    @Limiter(value = "denied", rate = 1, rateIntervalUnit = RateIntervalUnit.DAYS, rateType = RateType.PER_CLIENT, timeout = 0, fallback = "fallback")
+    public String denied(String userId) {
+        return userId;
+    }
+
+    public String fallback(String userId) {
+        return "fallback";
+    }
+
+    public static class Request {
+
+        private final String tenantId;
+
+        public Request(String tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        public String getTenantId() {
+            return tenantId;
+        }
+    }
+}
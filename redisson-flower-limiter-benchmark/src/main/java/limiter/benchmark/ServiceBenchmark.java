@@ -0,0 +1,105 @@
+package limiter.benchmark;
+
+import limiter.api.LimiterHandle;
+import limiter.api.RateAlgorithm;
+import limiter.api.impl.RedissonLimiterServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedissonLimiterServiceImpl 获取令牌的开销
+ * 分布式限流器访问进程内启动的Redis，速率足够大，测量的是获取成功的路径
+ *
+ * @author kana
+ * @date 2026/10/18 18:20
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServiceBenchmark {
+
+    private static final long RATE = 10_000_000;
+
+    private BenchmarkRedis redis;
+
+    private RedissonLimiterServiceImpl limiterService;
+
+    private LimiterHandle overall;
+
+    private LimiterHandle leased;
+
+    private LimiterHandle local;
+
+    private LimiterHandle gcra;
+
+    private List<LimiterHandle> composite;
+
+    private long[] compositePermits;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        redis = BenchmarkRedis.start();
+        limiterService = new RedissonLimiterServiceImpl(redis.getClient());
+        overall = limiterService.initRateLimiter(RATE, 1, RateIntervalUnit.SECONDS, "overall");
+        leased = limiterService.initRateLimiter(RATE, 1, RateIntervalUnit.SECONDS, RateType.OVERALL, true, "leased");
+        local = limiterService.initRateLimiter(RATE, 1, RateIntervalUnit.SECONDS, RateType.PER_CLIENT, "local");
+        gcra = limiterService.initRateLimiter(RATE, 1, RateIntervalUnit.SECONDS, RateType.OVERALL, RateAlgorithm.GCRA, false, "gcra");
+        composite = Arrays.asList(overall, limiterService.initRateLimiter(RATE, 1, RateIntervalUnit.SECONDS, "tenant"), local);
+        compositePermits = new long[]{1, 1, 1};
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        limiterService.destroy();
+        redis.close();
+    }
+
+    @Benchmark
+    public boolean tryAcquireByName() {
+        return limiterService.tryAcquire("overall", 1);
+    }
+
+    @Benchmark
+    public boolean tryAcquireHandle() {
+        return overall.tryAcquire(1);
+    }
+
+    @Benchmark
+    public boolean tryAcquireGcra() {
+        return gcra.tryAcquire(1);
+    }
+
+    @Benchmark
+    public boolean tryAcquireLeased() {
+        return leased.tryAcquire(1);
+    }
+
+    @Benchmark
+    public boolean tryAcquireLocal() {
+        return local.tryAcquire(1);
+    }
+
+    @Benchmark
+    public int tryAcquireAll() {
+        return limiterService.tryAcquireAll(composite, compositePermits);
+    }
+}
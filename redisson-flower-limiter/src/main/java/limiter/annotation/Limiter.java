@@ -1,5 +1,6 @@
 package limiter.annotation;
 
+import limiter.api.RateAlgorithm;
 import org.redisson.api.RateIntervalUnit;
 import org.redisson.api.RateType;
 
@@ -7,7 +8,6 @@ import java.lang.annotation.*;
 import java.util.concurrent.TimeUnit;
 
 /**
- * todo 对注解中回调方法和类的自检
  * 流控注解
  *
  * @author kana
@@ -16,6 +16,7 @@ import java.util.concurrent.TimeUnit;
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
 @Inherited
+@Repeatable(Limiters.class)
 public @interface Limiter {
 
     /**
@@ -24,7 +25,7 @@ public @interface Limiter {
     String value() default "";
 
     /**
-     * @return 流控器命名时根据入参拼接(# p1, # p2...)
+     * @return 流控器命名时根据入参拼接(# p1, # p2...) 支持多级属性(# p0.user.tenantId)
      */
     String[] args() default {};
 
@@ -48,11 +49,27 @@ public @interface Limiter {
      */
     long permits() default 1;
 
+    /**
+     * @return 按入参计算每次请求获取的令牌数 设置后permits不生效，语法同args(#p0.size()、#p1.items.length、#p0.count)
+     * 结果为数字时取整数值，为集合、Map或数组时取元素个数；不足1时按1计算，超过限流器单次可获取的上限(即当前rate，含运行时覆盖；进程内限流器超出容量时为容量)时直接拒绝并执行降级方法
+     */
+    String permitsExpression() default "";
+
     /**
      * @return 单机还是分布式 默认分布式
      */
     RateType rateType() default RateType.OVERALL;
 
+    /**
+     * @return 限流算法 默认令牌桶
+     */
+    RateAlgorithm algorithm() default RateAlgorithm.TOKEN_BUCKET;
+
+    /**
+     * @return 分布式限流器是否批量租用令牌在本地发放 大幅减少Redis访问 代价是令牌发放时间存在不超过一个租约周期(mid.limiter.lease-millis)的偏差
+     */
+    boolean lease() default false;
+
     /**
      * @return 获取不到令牌时是否阻塞请求
      */
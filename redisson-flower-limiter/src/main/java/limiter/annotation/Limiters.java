@@ -0,0 +1,21 @@
+package limiter.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 多个流控注解 同一方法上重复使用{@link Limiter}时由编译器生成
+ * 所有限流器同时获取令牌且不等待，分布式限流器在一次Redis调用中原子完成，任一限流器令牌不足即流控并执行该限流器的降级方法
+ *
+ * @author kana
+ * @date 2026/10/18 17:50
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface Limiters {
+
+    /**
+     * @return 流控注解
+     */
+    Limiter[] value();
+}
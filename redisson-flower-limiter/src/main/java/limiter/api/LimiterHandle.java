@@ -0,0 +1,102 @@
+package limiter.api;
+
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateLimiterConfig;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流器句柄 由{@link LimiterService#initRateLimiter}或{@link LimiterService#handle}获得
+ * 调用方持有句柄可以重复获取令牌而不再按名称查找，句柄在限流器被本地淘汰后仍然可用
+ *
+ * @author kana
+ * @date 2026/10/18 17:10
+ */
+
+public interface LimiterHandle {
+
+    /**
+     * @return 限流器名称
+     */
+    default String getName() {
+        return getRateLimiter().getName();
+    }
+
+    /**
+     * 尝试获取令牌 不阻塞等待
+     *
+     * @param permits 获取令牌数
+     * @return 是否获取成功
+     */
+    boolean tryAcquire(long permits);
+
+    /**
+     * 尝试在一段时间内获取令牌
+     *
+     * @param permits 获取令牌数
+     * @param timeout 获取时间
+     * @param unit    时间单位
+     * @return 是否获取成功
+     */
+    boolean tryAcquire(long permits, long timeout, TimeUnit unit);
+
+    /**
+     * 获取令牌 阻塞等待
+     *
+     * @param permits 获取令牌数
+     */
+    void acquire(long permits);
+
+    /**
+     * 异步尝试获取令牌 不等待
+     *
+     * @param permits 获取令牌数
+     * @return 是否获取成功
+     */
+    CompletionStage<Boolean> tryAcquireAsync(long permits);
+
+    /**
+     * 异步尝试在一段时间内获取令牌 等待期间不占用线程
+     *
+     * @param permits 获取令牌数
+     * @param timeout 获取时间
+     * @param unit    时间单位
+     * @return 是否获取成功
+     */
+    CompletionStage<Boolean> tryAcquireAsync(long permits, long timeout, TimeUnit unit);
+
+    /**
+     * 异步获取令牌 直到获取成功
+     *
+     * @param permits 获取令牌数
+     * @return 获取成功时完成
+     */
+    CompletionStage<Void> acquireAsync(long permits);
+
+    /**
+     * 获取成功后目标方法执行结束 自适应并发限流器据此归还并发数并调整并发上限，其余限流器忽略
+     *
+     * @param permits      获取时的令牌数
+     * @param elapsedNanos 目标方法耗时 纳秒
+     */
+    default void complete(long permits, long elapsedNanos) {
+    }
+
+    /**
+     * @return 限流器当前生效的配置 含运行时覆盖的令牌数与时间间隔，时间间隔单位为毫秒
+     */
+    RateLimiterConfig getConfig();
+
+    /**
+     * @return 单次最多获取的令牌数 一般等于配置的令牌数，进程内限流器超出容量上限时为实际容量
+     */
+    default long getMaxPermits() {
+        return getConfig().getRate();
+    }
+
+    /**
+     * @return 对应的Redisson限流器 本地引擎仅用于保存配置，令牌桶以外的算法仅用于提供名称
+     */
+    RRateLimiter getRateLimiter();
+}
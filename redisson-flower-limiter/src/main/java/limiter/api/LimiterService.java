@@ -1,14 +1,20 @@
 package limiter.api;
 
+import com.google.common.cache.CacheStats;
 import org.redisson.api.RRateLimiter;
 import org.redisson.api.RateIntervalUnit;
 import org.redisson.api.RateType;
 import org.redisson.api.RedissonClient;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 限流服务
+ * 按名称获取令牌时限流器必须已初始化，否则统一抛出IllegalStateException；通过initRateLimiter登记的限流器在本地空闲淘汰后自动重建，
+ * 通过resolveRateLimiter解析的限流器淘汰后需重新解析；频繁调用时建议持有{@link LimiterHandle}，省去每次按名称查找
  *
  * @author kana
  * @date 2022/4/19 17:49
@@ -23,8 +29,9 @@ public interface LimiterService {
      * @param rateInterval     产生令牌间隔时间
      * @param rateIntervalUnit 时间单位
      * @param name             限流器名称 单实例唯一
+     * @return 限流器句柄
      */
-    void initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, String name);
+    LimiterHandle initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, String name);
 
     /**
      * 生成限流器 n分钟内产生m个令牌
@@ -34,17 +41,87 @@ public interface LimiterService {
      * @param rateIntervalUnit 时间单位
      * @param rateType         是否客户端之间共享
      * @param name             限流器名称 单实例唯一
+     * @return 限流器句柄
      */
-    void initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType, String name);
+    LimiterHandle initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType, String name);
 
     /**
-     * 获取限流器
+     * 生成限流器 n分钟内产生m个令牌
+     *
+     * @param rate             令牌数
+     * @param rateInterval     产生令牌间隔时间
+     * @param rateIntervalUnit 时间单位
+     * @param rateType         是否客户端之间共享
+     * @param lease            分布式限流器是否批量租用令牌在本地发放
+     * @param name             限流器名称 单实例唯一
+     * @return 限流器句柄
+     */
+    LimiterHandle initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType, boolean lease, String name);
+
+    /**
+     * 生成限流器 n分钟内产生m个令牌
+     *
+     * @param rate             令牌数
+     * @param rateInterval     产生令牌间隔时间
+     * @param rateIntervalUnit 时间单位
+     * @param rateType         是否客户端之间共享
+     * @param algorithm        限流算法
+     * @param lease            分布式令牌桶是否批量租用令牌在本地发放 其余算法忽略
+     * @param name             限流器名称 单实例唯一
+     * @return 限流器句柄
+     */
+    LimiterHandle initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType,
+                                  RateAlgorithm algorithm, boolean lease, String name);
+
+    /**
+     * 解析限流器 与initRateLimiter相同但不保留登记参数，本地空闲淘汰后不能再按名称获取令牌
+     * 用于每次调用都会重新解析、名称随入参变化的限流器(如切面按args拼接的名称)，避免登记参数无限增长
+     *
+     * @param rate             令牌数
+     * @param rateInterval     产生令牌间隔时间
+     * @param rateIntervalUnit 时间单位
+     * @param rateType         是否客户端之间共享
+     * @param algorithm        限流算法
+     * @param lease            分布式令牌桶是否批量租用令牌在本地发放 其余算法忽略
+     * @param name             限流器名称 单实例唯一
+     * @return 限流器句柄
+     */
+    LimiterHandle resolveRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType,
+                                     RateAlgorithm algorithm, boolean lease, String name);
+
+    /**
+     * 获取已初始化的限流器句柄
+     *
+     * @param name 限流器名称
+     * @return 限流器句柄
+     * @throws IllegalStateException 限流器未初始化，或通过resolveRateLimiter解析且已被淘汰
+     */
+    LimiterHandle handle(String name);
+
+    /**
+     * 获取OVERALL令牌桶的Redisson限流器 返回前确保Redis中存在配置，可以直接调用RRateLimiter的方法
+     * 配置与令牌状态一样在一个时间间隔内无人获取令牌后过期，过期后需重新调用本方法；其余算法与PER_CLIENT限流器不在RRateLimiter中计数，请使用{@link #handle(String)}
      *
      * @param name 限流器名称
      * @return 限流器
+     * @throws IllegalStateException 限流器未初始化，或通过resolveRateLimiter解析且已被淘汰，或不是OVERALL令牌桶
      */
     RRateLimiter getRateLimiter(String name);
 
+    /**
+     * 本地限流器注册表的命中、加载与淘汰统计
+     *
+     * @return 统计信息
+     */
+    CacheStats getLimiterStats();
+
+    /**
+     * 本地限流器数量
+     *
+     * @return 限流器数量
+     */
+    long getLimiterSize();
+
     /**
      * 尝试获取限流器令牌 不阻塞等待
      *
@@ -98,6 +175,115 @@ public interface LimiterService {
      */
     void acquire(String name, long permits);
 
+    /**
+     * 异步尝试获取多个限流器令牌 不等待
+     *
+     * @param name    限流器名称
+     * @param permits 获取令牌数
+     * @return 是否获取成功
+     */
+    CompletionStage<Boolean> tryAcquireAsync(String name, long permits);
+
+    /**
+     * 异步尝试在一段时间内获取多个限流器令牌 等待期间不占用线程
+     *
+     * @param name    限流器名称
+     * @param permits 获取令牌数
+     * @param timeout 获取时间
+     * @param unit    时间单位
+     * @return 是否获取成功
+     */
+    CompletionStage<Boolean> tryAcquireAsync(String name, long permits, long timeout, TimeUnit unit);
+
+    /**
+     * 异步获取多个限流器令牌 直到获取成功
+     *
+     * @param name    限流器名称
+     * @param permits 获取令牌数
+     * @return 获取成功时完成
+     */
+    CompletionStage<Void> acquireAsync(String name, long permits);
+
+    /**
+     * 同时从多个限流器获取令牌 不等待，任一限流器令牌不足时都不扣减
+     * 分布式限流器在一次Redis调用中原子完成，集群模式下这些限流器的key需位于同一个slot
+     *
+     * @param handles 限流器句柄
+     * @param permits 每个限流器获取的令牌数 与handles一一对应
+     * @return 全部获取成功为-1，否则为令牌不足的限流器下标
+     */
+    int tryAcquireAll(List<LimiterHandle> handles, long[] permits);
+
+    /**
+     * 多个限流器能否在一次Redis调用中原子获取
+     * 全部为分布式令牌桶且集群模式下位于同一个slot时为true，否则本地、租约与其他算法的限流器先行依次获取，失败时再归还
+     *
+     * @param handles 限流器句柄
+     * @return 是否原子获取
+     */
+    boolean isAtomic(List<LimiterHandle> handles);
+
+    /**
+     * 异步同时从多个限流器获取令牌 不等待，任一限流器令牌不足时都不扣减
+     *
+     * @param handles 限流器句柄
+     * @param permits 每个限流器获取的令牌数 与handles一一对应
+     * @return 全部获取成功为-1，否则为令牌不足的限流器下标
+     */
+    CompletionStage<Integer> tryAcquireAllAsync(List<LimiterHandle> handles, long[] permits);
+
+    /**
+     * 响应式尝试获取多个限流器令牌 订阅时才发起获取
+     *
+     * @param name    限流器名称
+     * @param permits 获取令牌数
+     * @return 是否获取成功
+     */
+    Mono<Boolean> tryAcquireReactive(String name, long permits);
+
+    /**
+     * 响应式尝试在一段时间内获取多个限流器令牌 订阅时才发起获取
+     *
+     * @param name    限流器名称
+     * @param permits 获取令牌数
+     * @param timeout 获取时间
+     * @param unit    时间单位
+     * @return 是否获取成功
+     */
+    Mono<Boolean> tryAcquireReactive(String name, long permits, long timeout, TimeUnit unit);
+
+    /**
+     * 响应式获取多个限流器令牌 订阅时才发起获取
+     *
+     * @param name    限流器名称
+     * @param permits 获取令牌数
+     * @return 获取成功时完成
+     */
+    Mono<Void> acquireReactive(String name, long permits);
+
+    /**
+     * 运行时覆盖限流器的令牌数与时间间隔 写入Redis并通知所有节点，已有的令牌状态不重置，限流器类型与算法不变
+     * 需要配置 mid.limiter.override-key
+     *
+     * @param name             限流器名称 含入参拼接部分
+     * @param rate             令牌数
+     * @param rateInterval     产生令牌间隔时间
+     * @param rateIntervalUnit 时间单位
+     */
+    void setRateOverride(String name, long rate, long rateInterval, RateIntervalUnit rateIntervalUnit);
+
+    /**
+     * 删除覆盖配置 所有节点恢复注解配置
+     *
+     * @param name 限流器名称
+     */
+    void removeRateOverride(String name);
+
+    /**
+     * 预先加载所有限流脚本 各节点并行加载，避免首次获取令牌时因脚本缓存未命中产生额外往返
+     */
+    void loadScripts();
+
     /**
      * 获取RedissonClient实例
      *
@@ -0,0 +1,44 @@
+package limiter.api;
+
+/**
+ * 限流算法
+ * 分布式限流器(RateType.OVERALL)使用对应的Redis Lua脚本，单机限流器(RateType.PER_CLIENT)使用对应的进程内实现
+ *
+ * @author kana
+ * @date 2026/10/18 20:10
+ */
+
+public enum RateAlgorithm {
+
+    /**
+     * 令牌桶 与Redisson RRateLimiter数据结构一致，每个时间间隔内最多突发rate个令牌
+     * Redis中以有序集合记录每次发放，内存与脚本耗时随时间间隔内的获取次数增长；支持租约模式
+     */
+    TOKEN_BUCKET,
+
+    /**
+     * GCRA(通用信元速率算法) 与令牌桶等价的速率与突发量，Redis中只保存一个理论到达时间字符串，每次获取O(1)
+     */
+    GCRA,
+
+    /**
+     * 漏桶 以恒定间隔(时间间隔/rate)放行请求，不允许突发；基于GCRA实现，Redis中同样只保存一个字符串
+     */
+    LEAKY_BUCKET,
+
+    /**
+     * 滑动窗口计数 按上一个窗口计数的剩余权重加当前窗口计数估算最近一个时间间隔内的请求数，Redis中保存一个小hash
+     */
+    SLIDING_WINDOW,
+
+    /**
+     * 固定窗口计数 每个时间间隔最多放行rate个令牌，窗口从首次获取开始计时，Redis中只保存一个计数
+     */
+    FIXED_WINDOW,
+
+    /**
+     * 自适应并发 不限制速率而是限制同时执行的请求数，rate为并发上限的最大值，时间间隔不生效
+     * 并发上限按目标方法耗时的变化自动调整，分布式限流器定期通过Redis汇总各节点的并发上限；不支持租约
+     */
+    ADAPTIVE
+}
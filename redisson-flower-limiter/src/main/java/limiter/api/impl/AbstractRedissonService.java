@@ -1,18 +1,29 @@
 package limiter.api.impl;
 
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.StrUtil;
 import com.google.common.base.Preconditions;
 import limiter.configuration.LimiterConfig;
+import limiter.configuration.PerformanceProfile;
 import limiter.configuration.RedissonConfig;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.codec.Codec;
+import org.redisson.client.codec.StringCodec;
 import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.config.BaseConfig;
+import org.redisson.config.BaseMasterSlaveServersConfig;
 import org.redisson.config.Config;
+import org.redisson.config.MasterSlaveServersConfig;
+import org.redisson.config.SingleServerConfig;
+import org.redisson.config.TransportMode;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 初始化客户端
@@ -24,27 +35,47 @@ import java.util.Objects;
 public class AbstractRedissonService {
     private static final Logger logger = LoggerFactory.getLogger(AbstractRedissonService.class);
     private static final String REDISSON_ADDRESS_TEMPLATE = "redis://{}:{}";
+    private static final String REDISSON_ADDRESS_PREFIX = "redis://";
     protected static final Integer THREADS = 16;
     protected static final Integer NETTY_THREADS = 32;
+    protected static final long DEFAULT_LEASE_MILLIS = 100L;
+    /**
+     * 限流脚本与配置使用的编码 参数与返回值都按字符串传输
+     */
+    protected static final Codec LIMITER_CODEC = StringCodec.INSTANCE;
+    protected static final long DEFAULT_REGISTRY_MAXIMUM_SIZE = 100_000L;
+    protected static final long DEFAULT_REGISTRY_EXPIRE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    protected static final long HOT_KEY_DETECT_MILLIS = 1000L;
+    protected static final int HOT_KEY_CAPACITY = 64;
     /**
      * RedissonClient实例
      */
     protected RedissonClient redissonClient;
 
+    /**
+     * 是否复用外部传入的RedissonClient 复用时由外部管理生命周期
+     */
+    protected boolean sharedClient;
+
     public AbstractRedissonService(RedissonClient redissonClient) {
         this.redissonClient = redissonClient;
+        this.sharedClient = true;
     }
 
     public AbstractRedissonService(LimiterConfig limiterConfig, RedissonConfig redissonConfig) {
-        Preconditions.checkArgument(StrUtil.isNotBlank(limiterConfig.getHost()), "域名不能为空");
         Preconditions.checkArgument(StrUtil.isNotBlank(limiterConfig.getPassword()), "密码不能为空");
-        // JsonJackson 序列化方式
-        Codec codec = new JsonJacksonCodec();
-        Integer threads = THREADS;
-        Integer nettyThreads = NETTY_THREADS;
+        // 限流器的名称、配置与令牌数都是字符串和整数 默认使用字符串编码，避免JSON序列化开销
+        Codec codec = LIMITER_CODEC;
+        if (Boolean.TRUE.equals(redissonConfig.getJsonCodec())) {
+            codec = new JsonJacksonCodec();
+        }
         if (Objects.nonNull(redissonConfig.getCodec())) {
             codec = redissonConfig.getCodec();
         }
+        PerformanceProfile profile = ObjectUtil.defaultIfNull(redissonConfig.getProfile(), PerformanceProfile.DEFAULT);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = profile.getThreadsPerCore() > 0 ? cores * profile.getThreadsPerCore() : THREADS;
+        int nettyThreads = profile.getNettyThreadsPerCore() > 0 ? cores * profile.getNettyThreadsPerCore() : NETTY_THREADS;
         if (Objects.nonNull(redissonConfig.getThread())) {
             threads = redissonConfig.getThread();
         }
@@ -56,13 +87,171 @@ public class AbstractRedissonService {
                 .setUseScriptCache(true)
                 .setThreads(threads)
                 .setNettyThreads(nettyThreads)
-                .useSingleServer()
-                .setAddress(StrUtil.format(REDISSON_ADDRESS_TEMPLATE, limiterConfig.getHost(), limiterConfig.getPort()))
-                .setPassword(limiterConfig.getPassword())
-                .setTimeout(limiterConfig.getTimeout())
-                .setConnectionMinimumIdleSize(limiterConfig.getMinIdle());
+                .setTransportMode(transportMode(ObjectUtil.defaultIfNull(redissonConfig.getTransportMode(), profile.getTransportMode())));
+        BaseConfig<?> serverCfg = configureServers(redissonCfg, limiterConfig);
+        int poolSize = configurePool(serverCfg, limiterConfig, redissonConfig, profile);
+        configureConnection(serverCfg, redissonConfig, profile);
+        validate(cores, threads, nettyThreads, poolSize);
+        logger.info("redis客户端性能配置,预设:{},传输方式:{},CPU核数:{},线程数:{},netty线程数:{},连接池大小:{}",
+                profile, redissonCfg.getTransportMode(), cores, threads, nettyThreads, poolSize);
         this.redissonClient = Redisson.create(redissonCfg);
         logger.info("初始化redissonClient");
 
     }
+
+    /**
+     * 按配置依次选择集群、哨兵、主从与单机模式
+     * 限流器的key都以名称为hash tag，同一限流器的key落在同一个slot，不同限流器按名称分散到各个分片
+     */
+    private static BaseConfig<?> configureServers(Config redissonCfg, LimiterConfig limiterConfig) {
+        LimiterConfig.Cluster cluster = limiterConfig.getCluster();
+        if (Objects.nonNull(cluster) && CollUtil.isNotEmpty(cluster.getNodes())) {
+            logger.info("redis集群模式,节点:{}", cluster.getNodes());
+            return redissonCfg.useClusterServers()
+                    .addNodeAddress(toAddresses(cluster.getNodes()))
+                    .setPassword(limiterConfig.getPassword())
+                    .setTimeout(limiterConfig.getTimeout());
+        }
+        LimiterConfig.Sentinel sentinel = limiterConfig.getSentinel();
+        if (Objects.nonNull(sentinel) && StrUtil.isNotBlank(sentinel.getMaster())) {
+            Preconditions.checkArgument(CollUtil.isNotEmpty(sentinel.getNodes()), "哨兵节点不能为空");
+            logger.info("redis哨兵模式,主节点:{},哨兵:{}", sentinel.getMaster(), sentinel.getNodes());
+            return redissonCfg.useSentinelServers()
+                    .setMasterName(sentinel.getMaster())
+                    .addSentinelAddress(toAddresses(sentinel.getNodes()))
+                    .setSentinelPassword(sentinel.getPassword())
+                    .setDatabase(limiterConfig.getDatabase())
+                    .setPassword(limiterConfig.getPassword())
+                    .setTimeout(limiterConfig.getTimeout());
+        }
+        Preconditions.checkArgument(StrUtil.isNotBlank(limiterConfig.getHost()), "域名不能为空");
+        String address = StrUtil.format(REDISSON_ADDRESS_TEMPLATE, limiterConfig.getHost(), limiterConfig.getPort());
+        if (CollUtil.isNotEmpty(limiterConfig.getReplicaNodes())) {
+            logger.info("redis主从模式,主节点:{},从节点:{}", address, limiterConfig.getReplicaNodes());
+            return redissonCfg.useMasterSlaveServers()
+                    .setMasterAddress(address)
+                    .addSlaveAddress(toAddresses(limiterConfig.getReplicaNodes()))
+                    .setDatabase(limiterConfig.getDatabase())
+                    .setPassword(limiterConfig.getPassword())
+                    .setTimeout(limiterConfig.getTimeout());
+        }
+        return redissonCfg.useSingleServer()
+                .setAddress(address)
+                .setDatabase(limiterConfig.getDatabase())
+                .setPassword(limiterConfig.getPassword())
+                .setTimeout(limiterConfig.getTimeout());
+    }
+
+    /**
+     * 连接池大小与最小空闲连接 主从类模式下主从节点使用相同的配置
+     *
+     * @return 每个节点的连接池大小
+     */
+    private static int configurePool(BaseConfig<?> serverCfg, LimiterConfig limiterConfig, RedissonConfig redissonConfig,
+                                     PerformanceProfile profile) {
+        Integer poolSize = ObjectUtil.defaultIfNull(redissonConfig.getConnectionPoolSize(), profile.getConnectionPoolSize());
+        int minIdle = ObjectUtil.defaultIfNull(ObjectUtil.defaultIfNull(redissonConfig.getConnectionMinimumIdleSize(),
+                profile.getConnectionMinimumIdleSize()), limiterConfig.getMinIdle());
+        Long dnsMonitoringInterval = redissonConfig.getDnsMonitoringInterval();
+        if (serverCfg instanceof SingleServerConfig) {
+            SingleServerConfig single = (SingleServerConfig) serverCfg;
+            if (Objects.nonNull(poolSize)) {
+                single.setConnectionPoolSize(poolSize);
+            }
+            single.setConnectionMinimumIdleSize(Math.min(minIdle, single.getConnectionPoolSize()));
+            if (Objects.nonNull(dnsMonitoringInterval)) {
+                single.setDnsMonitoringInterval(dnsMonitoringInterval);
+            }
+            return single.getConnectionPoolSize();
+        }
+        BaseMasterSlaveServersConfig<?> masterSlave = (BaseMasterSlaveServersConfig<?>) serverCfg;
+        if (Objects.nonNull(poolSize)) {
+            masterSlave.setMasterConnectionPoolSize(poolSize);
+            masterSlave.setSlaveConnectionPoolSize(poolSize);
+        }
+        masterSlave.setMasterConnectionMinimumIdleSize(Math.min(minIdle, masterSlave.getMasterConnectionPoolSize()));
+        masterSlave.setSlaveConnectionMinimumIdleSize(Math.min(minIdle, masterSlave.getSlaveConnectionPoolSize()));
+        if (Objects.nonNull(dnsMonitoringInterval) && serverCfg instanceof MasterSlaveServersConfig) {
+            masterSlave.setDnsMonitoringInterval(dnsMonitoringInterval);
+        }
+        return masterSlave.getMasterConnectionPoolSize();
+    }
+
+    /**
+     * 重试、超时与TCP参数 未配置的项使用预设值，预设也未指定时保持Redisson默认值
+     */
+    private static void configureConnection(BaseConfig<?> serverCfg, RedissonConfig redissonConfig, PerformanceProfile profile) {
+        Integer retryAttempts = ObjectUtil.defaultIfNull(redissonConfig.getRetryAttempts(), profile.getRetryAttempts());
+        if (Objects.nonNull(retryAttempts)) {
+            serverCfg.setRetryAttempts(retryAttempts);
+        }
+        Integer retryInterval = ObjectUtil.defaultIfNull(redissonConfig.getRetryInterval(), profile.getRetryInterval());
+        if (Objects.nonNull(retryInterval)) {
+            serverCfg.setRetryInterval(retryInterval);
+        }
+        Boolean keepAlive = ObjectUtil.defaultIfNull(redissonConfig.getKeepAlive(), profile.getKeepAlive());
+        if (Objects.nonNull(keepAlive)) {
+            serverCfg.setKeepAlive(keepAlive);
+        }
+        if (Objects.nonNull(redissonConfig.getTcpNoDelay())) {
+            serverCfg.setTcpNoDelay(redissonConfig.getTcpNoDelay());
+        }
+        if (Objects.nonNull(redissonConfig.getConnectTimeout())) {
+            serverCfg.setConnectTimeout(redissonConfig.getConnectTimeout());
+        }
+        if (Objects.nonNull(redissonConfig.getIdleConnectionTimeout())) {
+            serverCfg.setIdleConnectionTimeout(redissonConfig.getIdleConnectionTimeout());
+        }
+        if (Objects.nonNull(redissonConfig.getPingConnectionInterval())) {
+            serverCfg.setPingConnectionInterval(redissonConfig.getPingConnectionInterval());
+        }
+    }
+
+    /**
+     * epoll/kqueue需要对应的netty本地库 不可用时退回NIO
+     */
+    private static TransportMode transportMode(TransportMode transportMode) {
+        if (Objects.isNull(transportMode) || transportMode == TransportMode.NIO) {
+            return TransportMode.NIO;
+        }
+        String className = transportMode == TransportMode.EPOLL ? "io.netty.channel.epoll.Epoll" : "io.netty.channel.kqueue.KQueue";
+        try {
+            Object available = Class.forName(className).getMethod("isAvailable").invoke(null);
+            if (Boolean.TRUE.equals(available)) {
+                return transportMode;
+            }
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.debug("{}不可用", className, e);
+        }
+        logger.warn("当前环境不支持{}传输,退回NIO", transportMode);
+        return TransportMode.NIO;
+    }
+
+    /**
+     * 启动时按CPU核数校验线程与连接配置
+     */
+    private static void validate(int cores, int threads, int nettyThreads, int poolSize) {
+        Preconditions.checkArgument(threads > 0, "线程数必须大于0");
+        Preconditions.checkArgument(nettyThreads > 0, "netty线程数必须大于0");
+        Preconditions.checkArgument(poolSize > 0, "连接池大小必须大于0");
+        if (nettyThreads > cores * 8) {
+            logger.warn("netty线程数{}远超CPU核数{},线程切换开销可能高于收益", nettyThreads, cores);
+        }
+        if (threads > cores * 8) {
+            logger.warn("线程数{}远超CPU核数{},线程切换开销可能高于收益", threads, cores);
+        }
+        if (poolSize < nettyThreads) {
+            logger.warn("连接池大小{}小于netty线程数{},部分netty线程将处于空闲", poolSize, nettyThreads);
+        }
+    }
+
+    /**
+     * host:port 补全为redisson地址 已带协议的原样使用
+     */
+    private static String[] toAddresses(List<String> nodes) {
+        return nodes.stream()
+                .map(String::trim)
+                .map(node -> node.contains("://") ? node : REDISSON_ADDRESS_PREFIX + node)
+                .toArray(String[]::new);
+    }
 }
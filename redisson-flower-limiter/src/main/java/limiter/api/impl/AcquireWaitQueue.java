@@ -0,0 +1,141 @@
+package limiter.api.impl;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 单个限流器的等待队列
+ * 等待者按先进先出排队，由定时器线程在下次可获取令牌的时刻唤醒队首并只发起一次获取，
+ * 获取成功后立即尝试下一个等待者；等待期间不占用线程，也不会每个等待者各自轮询Redis
+ *
+ * @author kana
+ * @date 2026/10/18 16:20
+ */
+
+final class AcquireWaitQueue {
+
+    private final DelayedRateLimiterEngine engine;
+
+    private final ScheduledExecutorService timer;
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 是否已有唤醒任务或获取请求在进行 保证同一时刻只有一次获取
+     */
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    AcquireWaitQueue(DelayedRateLimiterEngine engine, ScheduledExecutorService timer) {
+        this.engine = engine;
+        this.timer = timer;
+    }
+
+    boolean isEmpty() {
+        return waiters.isEmpty();
+    }
+
+    /**
+     * 加入等待队列
+     *
+     * @param permits  获取令牌数
+     * @param deadline 超时时刻 System.nanoTime，timed为false时忽略
+     * @param timed    是否有超时时间
+     * @return 获取成功为true 超时为false
+     */
+    CompletableFuture<Boolean> enqueue(long permits, long deadline, boolean timed) {
+        Waiter waiter = new Waiter(permits, deadline, timed);
+        if (timed) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                waiter.promise.complete(false);
+                return waiter.promise;
+            }
+            ScheduledFuture<?> timeout = timer.schedule(() -> waiter.promise.complete(false), remaining, TimeUnit.NANOSECONDS);
+            waiter.promise.whenComplete((acquired, ex) -> timeout.cancel(false));
+        }
+        waiters.offer(waiter);
+        signal();
+        return waiter.promise;
+    }
+
+    private void signal() {
+        if (draining.compareAndSet(false, true)) {
+            timer.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        Waiter head = waiters.peek();
+        // 跳过已超时或已被取消的等待者
+        while (head != null && (head.promise.isDone() || head.expired())) {
+            waiters.poll();
+            head.promise.complete(false);
+            head = waiters.peek();
+        }
+        if (head == null) {
+            draining.set(false);
+            // 释放标记期间可能有新的等待者入队
+            if (!waiters.isEmpty()) {
+                signal();
+            }
+            return;
+        }
+        Waiter current = head;
+        CompletionStage<Long> result;
+        try {
+            result = engine.tryAcquireOrDelayAsync(current.permits);
+        } catch (RuntimeException e) {
+            // 引擎同步抛出时同样只让队首失败 不能让队列停止唤醒
+            result = RateLimiterEngine.failed(e);
+        }
+        result.whenComplete((delay, ex) -> {
+            if (ex != null) {
+                waiters.remove(current);
+                current.promise.completeExceptionally(ex);
+                timer.execute(this::drain);
+                return;
+            }
+            if (delay == 0) {
+                waiters.remove(current);
+                // 获取过程中已超时或被取消 调用方得到的是失败，归还已扣减的令牌
+                if (!current.promise.complete(true)) {
+                    engine.refund(current.permits);
+                }
+                timer.execute(this::drain);
+                return;
+            }
+            long waitNanos = TimeUnit.MILLISECONDS.toNanos(delay);
+            if (current.timed) {
+                waitNanos = Math.max(0, Math.min(waitNanos, current.deadline - System.nanoTime()));
+            }
+            timer.schedule(this::drain, waitNanos, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private static final class Waiter {
+
+        private final long permits;
+
+        private final long deadline;
+
+        private final boolean timed;
+
+        private final CompletableFuture<Boolean> promise = new CompletableFuture<>();
+
+        private Waiter(long permits, long deadline, boolean timed) {
+            this.permits = permits;
+            this.deadline = deadline;
+            this.timed = timed;
+        }
+
+        private boolean expired() {
+            return timed && deadline - System.nanoTime() <= 0;
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package limiter.api.impl;
+
+import cn.hutool.core.util.StrUtil;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RScript;
+import org.redisson.api.RateLimiterConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限流器 限制同时执行的请求数而不是速率
+ * 并发上限按目标方法耗时的梯度调整：短期平均耗时相对长期平均耗时上升说明下游开始排队，按比例收缩；
+ * 耗时平稳时每次增加约sqrt(上限)的余量，上限介于1与rate之间
+ * 分布式(OVERALL)时定期将本节点的并发上限写入Redis并取各节点的平均值，新节点直接沿用集群已学到的上限，各节点逐步趋于一致
+ * 并发数不足时等待者按先进先出排队，由目标方法执行结束时唤醒
+ *
+ * @author kana
+ * @date 2026/10/18 22:10
+ */
+
+class AdaptiveConcurrencyLimiter implements RateLimiterEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    /**
+     * 初始并发上限
+     */
+    static final long INITIAL_LIMIT = 20;
+
+    /**
+     * 与Redis同步并发上限的周期 毫秒
+     */
+    static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 新上限的平滑系数
+     */
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * 短期耗时不超过长期耗时的该倍数时不收缩
+     */
+    private static final double TOLERANCE = 1.5;
+
+    private static final int SHORT_WINDOW = 10;
+
+    private static final int LONG_WINDOW = 600;
+
+    private final RRateLimiter rateLimiter;
+
+    private final RateLimiterConfig config;
+
+    private final long maxLimit;
+
+    private final AtomicLong inflight = new AtomicLong();
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * 当前并发上限 获取时读取
+     */
+    private volatile long limit;
+
+    /**
+     * 以下字段只在持有lock时访问 竞争时跳过本次采样
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private double estimatedLimit;
+
+    private double shortRtt;
+
+    private double longRtt;
+
+    private boolean adjusted;
+
+    private final RScript script;
+
+    private final List<Object> keys;
+
+    private final String nodeId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+
+    private final ScheduledFuture<?> sync;
+
+    /**
+     * 配置覆盖或淘汰后替换本限流器的新限流器 进行中的并发数已转移给它
+     */
+    private volatile AdaptiveConcurrencyLimiter successor;
+
+    /**
+     * @param config      限流配置 令牌数为并发上限的最大值
+     * @param rateLimiter 同名的Redisson限流器 只用于提供名称
+     * @param script      执行脚本的RScript 为null时不与其他节点同步
+     * @param key         各节点并发上限的hash
+     * @param scheduler   等待超时与同步定时器
+     */
+    AdaptiveConcurrencyLimiter(RateLimiterConfig config, RRateLimiter rateLimiter, RScript script, String key,
+                               ScheduledExecutorService scheduler) {
+        long maxLimit = config.getRate();
+        if (maxLimit <= 0) {
+            throw new IllegalArgumentException("Unsupported concurrency limit: " + maxLimit);
+        }
+        this.maxLimit = maxLimit;
+        this.config = config;
+        this.rateLimiter = rateLimiter;
+        this.scheduler = scheduler;
+        this.estimatedLimit = Math.min(maxLimit, INITIAL_LIMIT);
+        this.limit = (long) estimatedLimit;
+        this.script = script;
+        this.keys = Collections.singletonList(key);
+        this.sync = script == null ? null
+                : scheduler.scheduleWithFixedDelay(this::sync, SYNC_INTERVAL_MILLIS, SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean tryAcquire(long permits) {
+        checkPermits(permits);
+        for (; ; ) {
+            long current = inflight.get();
+            if (current + permits > limit) {
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + permits)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(long permits, long timeout, TimeUnit unit) {
+        checkPermits(permits);
+        if (waiters.isEmpty() && tryAcquire(permits)) {
+            return true;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        CompletableFuture<Boolean> promise = enqueue(permits, deadline, true);
+        try {
+            return promise.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return !promise.complete(false) && promise.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return !promise.complete(false) && promise.join();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public void acquire(long permits) {
+        checkPermits(permits);
+        if (waiters.isEmpty() && tryAcquire(permits)) {
+            return;
+        }
+        CompletableFuture<Boolean> promise = enqueue(permits, 0, false);
+        try {
+            promise.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (promise.complete(false) || !promise.join()) {
+                throw new IllegalStateException("Interrupted while acquiring permits");
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(long permits) {
+        if (!validPermits(permits)) {
+            return RateLimiterEngine.failed(new IllegalArgumentException("Requested permits amount could not exceed defined rate"));
+        }
+        return CompletableFuture.completedFuture(tryAcquire(permits));
+    }
+
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(long permits, long timeout, TimeUnit unit) {
+        if (!validPermits(permits)) {
+            return RateLimiterEngine.failed(new IllegalArgumentException("Requested permits amount could not exceed defined rate"));
+        }
+        if (waiters.isEmpty() && tryAcquire(permits)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return enqueue(permits, System.nanoTime() + unit.toNanos(timeout), true);
+    }
+
+    @Override
+    public CompletionStage<Void> acquireAsync(long permits) {
+        if (!validPermits(permits)) {
+            return RateLimiterEngine.failed(new IllegalArgumentException("Requested permits amount could not exceed defined rate"));
+        }
+        if (waiters.isEmpty() && tryAcquire(permits)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return enqueue(permits, 0, false).thenApply(acquired -> null);
+    }
+
+    /**
+     * 归还并发数并按本次耗时调整并发上限
+     */
+    @Override
+    public void complete(long permits, long elapsedNanos) {
+        long current = decrement(permits);
+        if (lock.tryLock()) {
+            try {
+                adjust(elapsedNanos, current + permits);
+            } finally {
+                lock.unlock();
+            }
+        }
+        drain();
+        forward(permits);
+    }
+
+    /**
+     * 多个限流器同时获取失败时归还 不计入耗时
+     */
+    @Override
+    public void refund(long permits) {
+        decrement(permits);
+        drain();
+        forward(permits);
+    }
+
+    /**
+     * 停止与其他节点同步
+     */
+    @Override
+    public CompletionStage<Void> release() {
+        if (sync != null) {
+            sync.cancel(false);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 沿用已学到的并发上限并接管进行中的并发数 仍持有旧句柄的调用方结束时经旧限流器转交归还
+     * 转移瞬间结束的调用可能被多归还一次，并发数短暂偏低，不会超过上限的两倍
+     */
+    @Override
+    public void inherit(RateLimiterEngine previous) {
+        if (previous instanceof AdaptiveConcurrencyLimiter) {
+            AdaptiveConcurrencyLimiter limiter = (AdaptiveConcurrencyLimiter) previous;
+            limiter.successor = this;
+            inflight.addAndGet(limiter.inflight.get());
+            lock.lock();
+            try {
+                update(limiter.limit);
+                adjusted = true;
+            } finally {
+                lock.unlock();
+            }
+            drain();
+        }
+    }
+
+    @Override
+    public RateLimiterConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public RRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * 超出并发上限最大值的请求永远无法满足 不能进入等待队列，否则会阻塞之后的所有等待者
+     */
+    private boolean validPermits(long permits) {
+        return permits > 0 && permits <= maxLimit;
+    }
+
+    private void checkPermits(long permits) {
+        if (!validPermits(permits)) {
+            throw new IllegalArgumentException("Requested permits amount could not exceed defined rate");
+        }
+    }
+
+    /**
+     * 被替换后调用方归还的并发数一并转交新限流器
+     */
+    private void forward(long permits) {
+        AdaptiveConcurrencyLimiter next = successor;
+        if (next != null) {
+            next.refund(permits);
+        }
+    }
+
+    private long decrement(long permits) {
+        for (; ; ) {
+            long current = inflight.get();
+            long next = Math.max(0, current - permits);
+            if (inflight.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 梯度 = 长期耗时 * 容忍度 / 短期耗时，限制在[0.5, 1]之间
+     * 新上限 = 当前上限 * 梯度 + sqrt(当前上限)，再按平滑系数向新上限靠拢
+     *
+     * @param rtt      本次耗时 纳秒
+     * @param inflight 本次结束前的并发数
+     */
+    private void adjust(long rtt, long inflight) {
+        if (rtt <= 0) {
+            return;
+        }
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+        } else {
+            shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+        }
+        // 长期耗时远高于短期耗时说明负载已回落 加快长期耗时的下降
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+        // 并发数不足上限一半时耗时无法说明上限是否合适 不调整
+        if (inflight < estimatedLimit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        update(estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+        adjusted = true;
+    }
+
+    /**
+     * 只更新上限 上限提高后由调用方在释放lock后唤醒等待者，避免在持有lock时执行等待者的后续回调
+     */
+    private void update(double newLimit) {
+        estimatedLimit = Math.max(1, Math.min(maxLimit, newLimit));
+        limit = (long) estimatedLimit;
+    }
+
+    /**
+     * 上报本节点的并发上限并取各节点的平均值 本节点尚未调整过时直接采用平均值
+     * 结果回到定时器线程处理，唤醒的等待者不在Redisson的netty线程上继续执行
+     */
+    private void sync() {
+        CompletionStage<String> average = script.evalAsync(RScript.Mode.READ_WRITE, AlgorithmScripts.ADAPTIVE_SYNC,
+                RScript.ReturnType.VALUE, keys, nodeId, limit, System.currentTimeMillis(), SYNC_INTERVAL_MILLIS * 3);
+        average.whenCompleteAsync((value, ex) -> {
+            if (ex != null) {
+                logger.debug("同步并发上限失败,流控器名:{}", rateLimiter.getName(), ex);
+                return;
+            }
+            if (StrUtil.isBlank(value)) {
+                logger.debug("同步并发上限未返回结果,流控器名:{}", rateLimiter.getName());
+                return;
+            }
+            double clusterLimit;
+            try {
+                clusterLimit = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                logger.debug("同步并发上限返回值无效,流控器名:{},返回值:{}", rateLimiter.getName(), value);
+                return;
+            }
+            lock.lock();
+            try {
+                update(adjusted ? estimatedLimit * (1 - SMOOTHING) + clusterLimit * SMOOTHING : clusterLimit);
+            } finally {
+                lock.unlock();
+            }
+            drain();
+        }, scheduler);
+    }
+
+    private CompletableFuture<Boolean> enqueue(long permits, long deadline, boolean timed) {
+        Waiter waiter = new Waiter(permits);
+        if (timed) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                waiter.promise.complete(false);
+                return waiter.promise;
+            }
+            ScheduledFuture<?> timeout = scheduler.schedule(() -> waiter.promise.complete(false), remaining, TimeUnit.NANOSECONDS);
+            waiter.promise.whenComplete((acquired, ex) -> timeout.cancel(false));
+        }
+        waiters.offer(waiter);
+        // 入队前可能已有并发数释放
+        drain();
+        return waiter.promise;
+    }
+
+    /**
+     * 按先进先出唤醒等待者 队首并发数不足时停止
+     */
+    private void drain() {
+        Waiter head;
+        while ((head = waiters.peek()) != null) {
+            if (head.promise.isDone()) {
+                waiters.remove(head);
+                continue;
+            }
+            if (!tryAcquire(head.permits)) {
+                return;
+            }
+            // 已被其他线程唤醒或已超时 归还本次获取的并发数
+            if (!waiters.remove(head) || !head.promise.complete(true)) {
+                decrement(head.permits);
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private final long permits;
+
+        private final CompletableFuture<Boolean> promise = new CompletableFuture<>();
+
+        private Waiter(long permits) {
+            this.permits = permits;
+        }
+    }
+}
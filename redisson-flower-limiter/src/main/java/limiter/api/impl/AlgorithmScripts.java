@@ -0,0 +1,160 @@
+package limiter.api.impl;
+
+import org.redisson.RedissonObject;
+
+/**
+ * 令牌桶以外各限流算法的Lua脚本 每个限流器只使用一个key，获取与归还都是O(1)
+ * KEYS[1] 限流器状态
+ * ARGV[1] 令牌数 ARGV[2] 时间间隔毫秒 ARGV[3] 当前毫秒 ARGV[4] 获取令牌数 ARGV[5] 允许的突发令牌数(仅GCRA)
+ * 获取脚本返回 获取成功为0，否则为建议的重试等待毫秒数；归还脚本无返回值
+ *
+ * @author kana
+ * @date 2026/10/18 20:20
+ */
+
+final class AlgorithmScripts {
+
+    /**
+     * GCRA 保存理论到达时间(TAT 微秒)，每个令牌推迟TAT一个发放间隔(时间间隔/令牌数)，
+     * TAT超出当前时间不超过突发量对应的时长即放行
+     */
+    static final String GCRA =
+            "local rate = tonumber(ARGV[1]);"
+                    + "local now = tonumber(ARGV[3]) * 1000;"
+                    + "local permits = tonumber(ARGV[4]);"
+                    + "assert(rate >= permits, 'Requested permits amount could not exceed defined rate');"
+                    + "local emission = tonumber(ARGV[2]) * 1000 / rate;"
+                    + "local tat = redis.call('get', KEYS[1]);"
+                    + "tat = tat == false and now or math.max(tonumber(tat), now);"
+                    + "local newTat = tat + emission * permits;"
+                    + "local allowAt = newTat - math.max(tonumber(ARGV[5]), permits) * emission;"
+                    + "if allowAt > now then "
+                    + "    return math.max(1, math.ceil((allowAt - now) / 1000));"
+                    + "end;"
+                    + "redis.call('set', KEYS[1], string.format('%.0f', newTat), 'px', math.ceil((newTat - now) / 1000) + 1);"
+                    + "return 0;";
+
+    /**
+     * GCRA归还 TAT回退对应的发放间隔，不早于当前时间
+     */
+    static final String GCRA_REFUND =
+            "local tat = redis.call('get', KEYS[1]);"
+                    + "if tat ~= false then "
+                    + "    local now = tonumber(ARGV[3]) * 1000;"
+                    + "    local newTat = tonumber(tat) - tonumber(ARGV[2]) * 1000 / tonumber(ARGV[1]) * tonumber(ARGV[4]);"
+                    + "    if newTat > now then "
+                    + "        redis.call('set', KEYS[1], string.format('%.0f', newTat), 'px', math.ceil((newTat - now) / 1000) + 1);"
+                    + "    else "
+                    + "        redis.call('del', KEYS[1]);"
+                    + "    end;"
+                    + "end;";
+
+    /**
+     * 滑动窗口 hash中保存当前窗口序号w、当前窗口计数c、上一个窗口计数p，窗口按时间间隔对齐
+     * 估算值 = p * 上一个窗口仍在最近一个时间间隔内的比例 + c
+     */
+    static final String SLIDING_WINDOW =
+            "local rate = tonumber(ARGV[1]);"
+                    + "local interval = tonumber(ARGV[2]);"
+                    + "local now = tonumber(ARGV[3]);"
+                    + "local permits = tonumber(ARGV[4]);"
+                    + "assert(rate >= permits, 'Requested permits amount could not exceed defined rate');"
+                    + "local w = math.floor(now / interval);"
+                    + "local state = redis.call('hmget', KEYS[1], 'w', 'c', 'p');"
+                    + "local cw = tonumber(state[1]);"
+                    + "local current = tonumber(state[2]) or 0;"
+                    + "local previous = tonumber(state[3]) or 0;"
+                    + "if cw ~= w then "
+                    + "    previous = cw == w - 1 and current or 0;"
+                    + "    current = 0;"
+                    + "end;"
+                    + "local remaining = 1 - (now - w * interval) / interval;"
+                    + "local excess = previous * remaining + current + permits - rate;"
+                    + "if excess > 0 then "
+                    // 当前窗口本身已满时等到下一个窗口，否则等上一个窗口的权重衰减到足够低
+                    + "    if current + permits > rate or previous == 0 then "
+                    + "        return math.max(1, math.ceil((w + 1) * interval - now));"
+                    + "    end;"
+                    + "    return math.max(1, math.ceil(math.min(excess / previous * interval, (w + 1) * interval - now)));"
+                    + "end;"
+                    + "redis.call('hmset', KEYS[1], 'w', w, 'c', current + permits, 'p', previous);"
+                    + "redis.call('pexpire', KEYS[1], interval * 2);"
+                    + "return 0;";
+
+    /**
+     * 滑动窗口归还 只归还仍在当前窗口内的计数
+     */
+    static final String SLIDING_WINDOW_REFUND =
+            "local w = math.floor(tonumber(ARGV[3]) / tonumber(ARGV[2]));"
+                    + "local state = redis.call('hmget', KEYS[1], 'w', 'c');"
+                    + "if tonumber(state[1]) == w then "
+                    + "    redis.call('hset', KEYS[1], 'c', math.max(0, tonumber(state[2]) - tonumber(ARGV[4])));"
+                    + "end;";
+
+    /**
+     * 固定窗口 计数从首次获取开始计时，一个时间间隔后随key过期清零
+     */
+    static final String FIXED_WINDOW =
+            "local rate = tonumber(ARGV[1]);"
+                    + "local permits = tonumber(ARGV[4]);"
+                    + "assert(rate >= permits, 'Requested permits amount could not exceed defined rate');"
+                    + "local count = tonumber(redis.call('get', KEYS[1]) or '0');"
+                    + "if count + permits > rate then "
+                    + "    return math.max(1, redis.call('pttl', KEYS[1]));"
+                    + "end;"
+                    + "if count == 0 then "
+                    + "    redis.call('set', KEYS[1], permits, 'px', ARGV[2]);"
+                    + "else "
+                    + "    redis.call('incrby', KEYS[1], permits);"
+                    + "end;"
+                    + "return 0;";
+
+    /**
+     * 固定窗口归还 窗口已过期时不再写入
+     */
+    static final String FIXED_WINDOW_REFUND =
+            "if redis.call('exists', KEYS[1]) == 1 then "
+                    + "    local count = redis.call('decrby', KEYS[1], ARGV[4]);"
+                    + "    if count < 0 then "
+                    + "        redis.call('incrby', KEYS[1], -count);"
+                    + "    end;"
+                    + "end;";
+
+    /**
+     * 自适应并发限流器同步 hash中保存各节点的并发上限与上报时间，清理超时未上报的节点
+     * KEYS[1] 各节点并发上限
+     * ARGV[1] 节点标识 ARGV[2] 并发上限 ARGV[3] 当前毫秒 ARGV[4] 节点超时毫秒
+     * 返回 各节点并发上限的平均值
+     */
+    static final String ADAPTIVE_SYNC =
+            "local now = tonumber(ARGV[3]);"
+                    + "local ttl = tonumber(ARGV[4]);"
+                    + "redis.call('hset', KEYS[1], ARGV[1], ARGV[2] .. ':' .. ARGV[3]);"
+                    + "local nodes = redis.call('hgetall', KEYS[1]);"
+                    + "local sum = 0;"
+                    + "local n = 0;"
+                    + "for i = 1, #nodes, 2 do "
+                    + "    local value = nodes[i + 1];"
+                    + "    local sep = string.find(value, ':', 1, true);"
+                    + "    if now - tonumber(string.sub(value, sep + 1)) > ttl then "
+                    + "        redis.call('hdel', KEYS[1], nodes[i]);"
+                    + "    else "
+                    + "        sum = sum + tonumber(string.sub(value, 1, sep - 1));"
+                    + "        n = n + 1;"
+                    + "    end;"
+                    + "end;"
+                    + "redis.call('pexpire', KEYS[1], ttl);"
+                    + "return string.format('%.2f', sum / n);";
+
+    private AlgorithmScripts() {
+    }
+
+    /**
+     * @param name   限流器名称
+     * @param suffix 算法后缀 与令牌桶的key区分，同名限流器切换算法时互不影响
+     * @return 限流器状态key
+     */
+    static String key(String name, String suffix) {
+        return RedissonObject.suffixName(name, suffix);
+    }
+}
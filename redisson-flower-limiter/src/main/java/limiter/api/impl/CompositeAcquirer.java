@@ -0,0 +1,261 @@
+package limiter.api.impl;
+
+import limiter.metrics.LatencyRecorder;
+import org.redisson.api.RScript;
+import org.redisson.api.RateLimiterConfig;
+import org.redisson.connection.CRC16;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 同时从多个限流器获取令牌
+ * 所有Redis令牌桶在一个Lua脚本中原子地检查并扣减，只需一次往返(集群模式下每个slot一次)；本地限流器、租约与其他算法的Redis限流器先行依次获取，
+ * 任一限流器令牌不足时归还已获取的令牌，不会出现部分扣减；Redis令牌桶处于本地拒绝期时不发起任何调用
+ * 是否只需一次脚本调用见{@link #isAtomic}，切面在方法首次调用时对无法原子获取的组合输出一次告警
+ *
+ * @author kana
+ * @date 2026/10/18 17:40
+ */
+
+final class CompositeAcquirer {
+
+    /**
+     * 全部获取成功
+     */
+    static final int ACQUIRED = -1;
+
+    private static final int SLOTS = 16384;
+
+    private CompositeAcquirer() {
+    }
+
+    /**
+     * 是否只需一次脚本调用 全部为Redis令牌桶且集群模式下位于同一个slot
+     *
+     * @param engines 限流器
+     * @param cluster 是否集群模式
+     * @return 是否原子获取
+     */
+    static boolean isAtomic(List<RateLimiterEngine> engines, boolean cluster) {
+        int slot = -1;
+        for (RateLimiterEngine engine : engines) {
+            if (!(engine instanceof RedissonRateLimiterEngine)) {
+                return false;
+            }
+            if (cluster) {
+                int current = slot((String) ((RedissonRateLimiterEngine) engine).getKeys().get(1));
+                if (slot != -1 && slot != current) {
+                    return false;
+                }
+                slot = current;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param script  执行脚本的RScript
+     * @param engines 限流器
+     * @param permits 每个限流器获取的令牌数 与engines一一对应
+     * @param cluster 是否集群模式
+     * @param latency Redis调用耗时记录器
+     * @return 全部获取成功为{@link #ACQUIRED}，否则为令牌不足的限流器下标
+     */
+    static CompletionStage<Integer> tryAcquireAll(RScript script, List<RateLimiterEngine> engines, long[] permits,
+                                                  boolean cluster, LatencyRecorder latency) {
+        if (engines.size() != permits.length) {
+            throw new IllegalArgumentException("限流器与令牌数数量不一致");
+        }
+        int cached = deniedLocally(engines, permits);
+        if (cached != ACQUIRED) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return acquireLocal(engines, permits, 0).thenCompose(denied -> {
+            if (denied != ACQUIRED) {
+                return CompletableFuture.completedFuture(denied);
+            }
+            return acquireRemote(script, engines, permits, cluster, latency).whenComplete((remoteDenied, ex) -> {
+                if (ex != null || remoteDenied != ACQUIRED) {
+                    refundLocal(engines, permits, engines.size());
+                }
+            });
+        });
+    }
+
+    /**
+     * @return 第一个处于本地拒绝期的Redis令牌桶下标 没有时为{@link #ACQUIRED}
+     */
+    private static int deniedLocally(List<RateLimiterEngine> engines, long[] permits) {
+        for (int i = 0; i < engines.size(); i++) {
+            RateLimiterEngine engine = engines.get(i);
+            if (engine instanceof RedissonRateLimiterEngine
+                    && ((RedissonRateLimiterEngine) engine).getDenyCache().remaining(permits[i]) > 0) {
+                return i;
+            }
+        }
+        return ACQUIRED;
+    }
+
+    /**
+     * 依次获取令牌桶脚本以外的限流器的令牌
+     */
+    private static CompletionStage<Integer> acquireLocal(List<RateLimiterEngine> engines, long[] permits, int from) {
+        for (int i = from; i < engines.size(); i++) {
+            RateLimiterEngine engine = engines.get(i);
+            if (engine instanceof RedissonRateLimiterEngine) {
+                continue;
+            }
+            int index = i;
+            CompletionStage<Boolean> acquired;
+            try {
+                acquired = engine.tryAcquireAsync(permits[i]);
+            } catch (RuntimeException e) {
+                refundLocal(engines, permits, index);
+                throw e;
+            }
+            return acquired.handle((success, ex) -> {
+                if (ex != null || !success) {
+                    refundLocal(engines, permits, index);
+                }
+                if (ex != null) {
+                    throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+                }
+                return success;
+            }).thenCompose(success -> success
+                    ? acquireLocal(engines, permits, index + 1) : CompletableFuture.completedFuture(index));
+        }
+        return CompletableFuture.completedFuture(ACQUIRED);
+    }
+
+    /**
+     * 一次脚本调用获取所有Redis令牌桶的令牌
+     * 集群模式下一个脚本只能访问同一个slot的key，按slot分组并行执行，任一分组不足时归还其他分组已获取的令牌
+     */
+    private static CompletionStage<Integer> acquireRemote(RScript script, List<RateLimiterEngine> engines, long[] permits,
+                                                          boolean cluster, LatencyRecorder latency) {
+        Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < engines.size(); i++) {
+            RateLimiterEngine engine = engines.get(i);
+            if (engine instanceof RedissonRateLimiterEngine) {
+                int slot = cluster ? slot((String) ((RedissonRateLimiterEngine) engine).getKeys().get(1)) : 0;
+                groups.computeIfAbsent(slot, key -> new ArrayList<>()).add(i);
+            }
+        }
+        if (groups.isEmpty()) {
+            return CompletableFuture.completedFuture(ACQUIRED);
+        }
+        long now = System.currentTimeMillis();
+        String id = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        if (groups.size() == 1) {
+            return evalGroup(script, engines, permits, groups.values().iterator().next(), now, id, latency);
+        }
+        List<List<Integer>> indexGroups = new ArrayList<>(groups.values());
+        List<CompletableFuture<Integer>> results = new ArrayList<>(indexGroups.size());
+        for (List<Integer> indexes : indexGroups) {
+            results.add(evalGroup(script, engines, permits, indexes, now, id, latency).toCompletableFuture());
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).handle((v, ex) -> {
+            int denied = ACQUIRED;
+            List<List<Integer>> granted = new ArrayList<>(indexGroups.size());
+            for (int i = 0; i < results.size(); i++) {
+                CompletableFuture<Integer> result = results.get(i);
+                if (result.isCompletedExceptionally()) {
+                    continue;
+                }
+                int index = result.join();
+                if (index == ACQUIRED) {
+                    granted.add(indexGroups.get(i));
+                } else if (denied == ACQUIRED || index < denied) {
+                    denied = index;
+                }
+            }
+            if (ex != null || denied != ACQUIRED) {
+                for (List<Integer> indexes : granted) {
+                    release(script, engines, permits, indexes, id);
+                }
+            }
+            if (ex != null) {
+                throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+            }
+            return denied;
+        });
+    }
+
+    /**
+     * 一个slot内的令牌桶在同一个脚本中获取
+     */
+    private static CompletionStage<Integer> evalGroup(RScript script, List<RateLimiterEngine> engines, long[] permits,
+                                                      List<Integer> indexes, long now, String id, LatencyRecorder latency) {
+        List<Object> keys = new ArrayList<>(indexes.size() * 3);
+        List<Object> args = new ArrayList<>(2 + indexes.size() * 4);
+        args.add(now);
+        args.add(id);
+        for (int i : indexes) {
+            RedissonRateLimiterEngine remote = (RedissonRateLimiterEngine) engines.get(i);
+            RateLimiterConfig config = remote.getConfig();
+            keys.addAll(remote.getKeys());
+            args.add(config.getRate());
+            args.add(config.getRateInterval());
+            args.add(config.getRateType().ordinal());
+            args.add(permits[i]);
+        }
+        long start = System.nanoTime();
+        CompletionStage<List<Long>> result = script.evalAsync(RScript.Mode.READ_WRITE, RateLimiterScripts.TRY_ACQUIRE_ALL,
+                RScript.ReturnType.MULTI, keys, args.toArray());
+        return result.thenApply(denied -> {
+            latency.record(System.nanoTime() - start);
+            long index = denied.get(0);
+            if (index == 0) {
+                return ACQUIRED;
+            }
+            int engineIndex = indexes.get((int) index - 1);
+            ((RedissonRateLimiterEngine) engines.get(engineIndex)).getDenyCache().update(permits[engineIndex], denied.get(1));
+            return engineIndex;
+        });
+    }
+
+    /**
+     * 异步归还一个slot分组已获取的令牌 不等待结果
+     */
+    private static void release(RScript script, List<RateLimiterEngine> engines, long[] permits, List<Integer> indexes, String id) {
+        List<Object> keys = new ArrayList<>(indexes.size() * 3);
+        List<Object> args = new ArrayList<>(1 + indexes.size());
+        args.add(id);
+        for (int i : indexes) {
+            keys.addAll(((RedissonRateLimiterEngine) engines.get(i)).getKeys());
+            args.add(permits[i]);
+        }
+        script.evalAsync(RScript.Mode.READ_WRITE, RateLimiterScripts.RELEASE_ALL, RScript.ReturnType.STATUS, keys, args.toArray());
+    }
+
+    /**
+     * 与Redis集群一致的slot计算 key中包含hash tag时只计算tag部分
+     */
+    private static int slot(String key) {
+        int start = key.indexOf('{');
+        if (start != -1) {
+            int end = key.indexOf('}', start + 1);
+            if (end > start + 1) {
+                key = key.substring(start + 1, end);
+            }
+        }
+        return CRC16.crc16(key.getBytes(StandardCharsets.UTF_8)) % SLOTS;
+    }
+
+    private static void refundLocal(List<RateLimiterEngine> engines, long[] permits, int end) {
+        for (int i = 0; i < end; i++) {
+            RateLimiterEngine engine = engines.get(i);
+            if (!(engine instanceof RedissonRateLimiterEngine)) {
+                engine.refund(permits[i]);
+            }
+        }
+    }
+}
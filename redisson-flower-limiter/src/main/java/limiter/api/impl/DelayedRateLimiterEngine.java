@@ -0,0 +1,128 @@
+package limiter.api.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 能够给出下次可获取令牌时间的限流引擎
+ * 需要等待的获取统一进入{@link AcquireWaitQueue}排队，由定时器线程按令牌释放时间唤醒，
+ * 同步调用方只阻塞在Future上(虚拟线程下仅挂起虚拟线程)，异步调用方不占用线程
+ *
+ * @author kana
+ * @date 2026/10/18 15:10
+ */
+
+abstract class DelayedRateLimiterEngine implements RateLimiterEngine {
+
+    private final AcquireWaitQueue waitQueue;
+
+    DelayedRateLimiterEngine(ScheduledExecutorService scheduler) {
+        this.waitQueue = new AcquireWaitQueue(this, scheduler);
+    }
+
+    /**
+     * 尝试获取令牌
+     *
+     * @param permits 获取令牌数
+     * @return 0表示获取成功 否则为建议的重试等待毫秒数
+     */
+    abstract long tryAcquireOrDelay(long permits);
+
+    /**
+     * 异步尝试获取令牌 默认直接在当前线程计算
+     *
+     * @param permits 获取令牌数
+     * @return 0表示获取成功 否则为建议的重试等待毫秒数 令牌数超出限流器令牌数等参数错误时为失败的结果
+     */
+    CompletionStage<Long> tryAcquireOrDelayAsync(long permits) {
+        try {
+            return CompletableFuture.completedFuture(tryAcquireOrDelay(permits));
+        } catch (RuntimeException e) {
+            return RateLimiterEngine.failed(e);
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(long permits) {
+        return tryAcquireOrDelay(permits) == 0;
+    }
+
+    @Override
+    public boolean tryAcquire(long permits, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        // 没有排队者时先直接尝试一次 避免经过定时器线程
+        if (waitQueue.isEmpty() && tryAcquireOrDelay(permits) == 0) {
+            return true;
+        }
+        CompletableFuture<Boolean> promise = waitQueue.enqueue(permits, deadline, true);
+        try {
+            return promise.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return !promise.complete(false) && promise.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return !promise.complete(false) && promise.join();
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    @Override
+    public void acquire(long permits) {
+        if (waitQueue.isEmpty() && tryAcquireOrDelay(permits) == 0) {
+            return;
+        }
+        CompletableFuture<Boolean> promise = waitQueue.enqueue(permits, 0, false);
+        try {
+            promise.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (promise.complete(false) || !promise.join()) {
+                throw new IllegalStateException("Interrupted while acquiring permits");
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(long permits) {
+        return tryAcquireOrDelayAsync(permits).thenApply(delay -> delay == 0);
+    }
+
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(long permits, long timeout, TimeUnit unit) {
+        return waitQueue.enqueue(permits, System.nanoTime() + unit.toNanos(timeout), true);
+    }
+
+    @Override
+    public CompletionStage<Void> acquireAsync(long permits) {
+        return waitQueue.enqueue(permits, 0, false).thenApply(acquired -> null);
+    }
+
+    /**
+     * 同步等待异步结果 还原原始异常
+     */
+    static <T> T join(CompletionStage<T> stage) {
+        try {
+            return stage.toCompletableFuture().join();
+        } catch (CompletionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+}
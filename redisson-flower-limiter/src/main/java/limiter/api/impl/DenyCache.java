@@ -0,0 +1,90 @@
+package limiter.api.impl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式限流器的本地拒绝缓存
+ * 脚本返回令牌不足与下次释放令牌的时间后，在此之前获取同样或更多令牌必然失败，直接在本地拒绝，不再访问Redis
+ * 限流器被打满时各节点对Redis的访问从每个请求一次降为每个释放周期一次
+ *
+ * @author kana
+ * @date 2026/10/18 21:30
+ */
+
+final class DenyCache {
+
+    private final boolean enabled;
+
+    private final long rate;
+
+    private volatile Denial denial;
+
+    /**
+     * @param enabled 是否开启
+     * @param rate    限流器令牌数 超出时仍交给脚本校验
+     */
+    DenyCache(boolean enabled, long rate) {
+        this.enabled = enabled;
+        this.rate = rate;
+    }
+
+    /**
+     * @param permits 获取令牌数
+     * @return 仍处于拒绝期时剩余的毫秒数 否则为0
+     */
+    long remaining(long permits) {
+        Denial current = denial;
+        if (current == null || permits < current.permits || permits > rate) {
+            return 0;
+        }
+        long remaining = current.until - System.nanoTime();
+        if (remaining <= 0) {
+            return 0;
+        }
+        return Math.max(1L, TimeUnit.NANOSECONDS.toMillis(remaining));
+    }
+
+    /**
+     * 记录脚本的获取结果
+     *
+     * @param permits 获取令牌数
+     * @param delay   0表示获取成功 否则为距离下次释放令牌的毫秒数
+     */
+    void update(long permits, long delay) {
+        if (!enabled) {
+            return;
+        }
+        if (delay <= 0) {
+            if (denial != null) {
+                denial = null;
+            }
+            return;
+        }
+        denial = new Denial(permits, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay));
+    }
+
+    /**
+     * 本地归还令牌后拒绝期不再可靠
+     */
+    void clear() {
+        denial = null;
+    }
+
+    private static final class Denial {
+
+        /**
+         * 被拒绝的令牌数 更少的令牌数仍可能获取成功
+         */
+        private final long permits;
+
+        /**
+         * 拒绝期结束时刻 System.nanoTime
+         */
+        private final long until;
+
+        private Denial(long permits, long until) {
+            this.permits = permits;
+            this.until = until;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package limiter.api.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点限流器统计
+ * 获取令牌时写入count-min sketch，估计值达到阈值的限流器进入容量有限的候选集合；检测时只处理候选与已切换的限流器，不遍历注册表
+ * 估计值只会偏大，偏差取决于同一周期内的限流器数量与sketch宽度，阈值附近的冷门限流器可能被误判为热点
+ *
+ * @author kana
+ * @date 2026/10/18 23:10
+ */
+
+final class HotKeySketch {
+
+    private static final int DEPTH = 4;
+
+    private static final int WIDTH_BITS = 10;
+
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F};
+
+    private final AtomicLongArray counts = new AtomicLongArray(DEPTH << WIDTH_BITS);
+
+    private final Set<RedissonRateLimiterEngine> candidates = ConcurrentHashMap.newKeySet();
+
+    private final long threshold;
+
+    private final int capacity;
+
+    /**
+     * @param threshold 一个检测周期内进入候选集合的次数
+     * @param capacity  候选集合容量 超出后本周期内不再加入
+     */
+    HotKeySketch(long threshold, int capacity) {
+        this.threshold = Math.max(1, threshold);
+        this.capacity = capacity;
+    }
+
+    /**
+     * 记录一次获取
+     *
+     * @param engine 限流器
+     */
+    void add(RedissonRateLimiterEngine engine) {
+        int hash = spread(engine.getRateLimiter().getName().hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            estimate = Math.min(estimate, counts.incrementAndGet(index(i, hash)));
+        }
+        if (estimate >= threshold && candidates.size() < capacity) {
+            candidates.add(engine);
+        }
+    }
+
+    /**
+     * 取出本周期的候选与指定限流器的估计次数 并开始下一个周期
+     *
+     * @param tracked 需要一并估计的限流器 如已切换为租约模式的限流器
+     * @return 限流器与本周期的估计获取次数
+     */
+    Map<RedissonRateLimiterEngine, Long> drain(Collection<RedissonRateLimiterEngine> tracked) {
+        Map<RedissonRateLimiterEngine, Long> estimates = new HashMap<>();
+        for (RedissonRateLimiterEngine engine : candidates) {
+            estimates.put(engine, estimate(engine));
+        }
+        for (RedissonRateLimiterEngine engine : tracked) {
+            estimates.put(engine, estimate(engine));
+        }
+        candidates.clear();
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        return estimates;
+    }
+
+    private long estimate(RedissonRateLimiterEngine engine) {
+        int hash = spread(engine.getRateLimiter().getName().hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            estimate = Math.min(estimate, counts.get(index(i, hash)));
+        }
+        return estimate;
+    }
+
+    private static int index(int row, int hash) {
+        return (row << WIDTH_BITS) | ((hash * SEEDS[row]) >>> (Integer.SIZE - WIDTH_BITS));
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
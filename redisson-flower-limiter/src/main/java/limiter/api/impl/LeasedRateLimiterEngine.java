@@ -0,0 +1,244 @@
+package limiter.api.impl;
+
+import limiter.metrics.LatencyRecorder;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RScript;
+import org.redisson.api.RateLimiterConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 租约模式的分布式令牌桶
+ * 每次从Redis共享令牌桶中原子地租用一批令牌在本地发放，用完或租约到期后归还未使用的令牌并续租
+ * 租约大小按本地观测到的速率自适应，最多为一个租约周期内令牌桶产生的令牌数，时间上的偏差不超过一个租约周期
+ * 租不到令牌后直到下次释放令牌前不再续租，直接在本地拒绝
+ *
+ * @author kana
+ * @date 2026/10/18 14:20
+ */
+
+class LeasedRateLimiterEngine extends DelayedRateLimiterEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeasedRateLimiterEngine.class);
+
+    private static final CompletionStage<Long> ACQUIRED = CompletableFuture.completedFuture(0L);
+
+    private final RRateLimiter rateLimiter;
+
+    private final RScript script;
+
+    private final List<Object> keys;
+
+    private final RateLimiterConfig config;
+
+    private final long rate;
+
+    private final long leaseMillis;
+
+    private final long maxLeaseSize;
+
+    private final DenyCache denyCache;
+
+    private final LatencyRecorder latency;
+
+    /**
+     * 本地剩余的租约令牌
+     */
+    private final AtomicLong available = new AtomicLong();
+
+    /**
+     * 租约到期时刻 System.nanoTime
+     */
+    private volatile long expireAt = System.nanoTime();
+
+    private String leaseId;
+
+    private long leased;
+
+    private long leaseStart;
+
+    private long leaseSize = 1;
+
+    /**
+     * 观测到的本地速率 令牌/毫秒
+     */
+    private double observedRate;
+
+    /**
+     * 进行中的续租请求
+     */
+    private CompletableFuture<Long> renewal;
+
+    LeasedRateLimiterEngine(RRateLimiter rateLimiter, RScript script, RateLimiterConfig config, long leaseMillis,
+                            boolean denyCache, LatencyRecorder latency, ScheduledExecutorService scheduler) {
+        super(scheduler);
+        this.rateLimiter = rateLimiter;
+        this.script = script;
+        this.keys = RateLimiterScripts.keys(rateLimiter.getName());
+        this.config = config;
+        this.rate = config.getRate();
+        this.leaseMillis = leaseMillis;
+        this.maxLeaseSize = Math.max(1, Math.min(rate, rate * leaseMillis / config.getRateInterval()));
+        this.denyCache = new DenyCache(denyCache, rate);
+        this.latency = latency;
+    }
+
+    @Override
+    public RRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * 归还未使用的租约令牌 不等待Redis返回
+     * 归还失败时恢复本地租约，由下次续租或释放再次归还；已被淘汰或退出租约模式的限流器不会再续租，这部分令牌在Redis中的租约过期前不可用
+     */
+    @Override
+    public CompletionStage<Void> release() {
+        long unused;
+        String previousId;
+        long previousLeased;
+        String releaseId;
+        CompletionStage<List<Long>> future;
+        synchronized (this) {
+            unused = available.getAndSet(0);
+            if (leaseId == null || unused <= 0) {
+                return CompletableFuture.completedFuture(null);
+            }
+            previousId = leaseId;
+            previousLeased = leased;
+            future = evalAsync(0, unused);
+            releaseId = leaseId;
+        }
+        return future.handle((result, ex) -> {
+            if (ex != null) {
+                synchronized (this) {
+                    // 期间没有续租时恢复原租约
+                    if (releaseId.equals(leaseId)) {
+                        leaseId = previousId;
+                        leased = previousLeased;
+                        available.addAndGet(unused);
+                    }
+                }
+                logger.warn("归还租约令牌失败 租约过期前这部分令牌不可用,流控器名:{},令牌数:{}", rateLimiter.getName(), unused, ex);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public RateLimiterConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 退回到当前租约 随下次续租或释放一起归还Redis
+     */
+    @Override
+    public void refund(long permits) {
+        denyCache.clear();
+        available.addAndGet(permits);
+    }
+
+    @Override
+    long tryAcquireOrDelay(long permits) {
+        return join(tryAcquireOrDelayAsync(permits));
+    }
+
+    @Override
+    CompletionStage<Long> tryAcquireOrDelayAsync(long permits) {
+        if (permits <= 0 || permits > rate) {
+            return RateLimiterEngine.failed(new IllegalArgumentException("Requested permits amount could not exceed defined rate"));
+        }
+        if (tryTakeLocal(permits)) {
+            return ACQUIRED;
+        }
+        CompletableFuture<Long> current;
+        synchronized (this) {
+            // 等锁期间可能已被其他线程续租
+            if (tryTakeLocal(permits)) {
+                return ACQUIRED;
+            }
+            // 同一时刻只有一个续租请求 其余调用方共享其结果
+            if (renewal == null || renewal.isDone()) {
+                long denied = denyCache.remaining(permits);
+                if (denied > 0) {
+                    return CompletableFuture.completedFuture(denied);
+                }
+                renewal = renew(permits);
+            }
+            current = renewal;
+        }
+        return current.thenApply(delay -> tryTakeLocal(permits) ? 0L : Math.max(1L, delay));
+    }
+
+    private boolean tryTakeLocal(long permits) {
+        if (System.nanoTime() - expireAt >= 0) {
+            return false;
+        }
+        for (; ; ) {
+            long current = available.get();
+            if (current < permits) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - permits)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 归还上一个租约中未使用的令牌并租用新的一批 一次Lua调用完成
+     *
+     * @return 租不到令牌时距离下次释放令牌的毫秒数
+     */
+    private CompletableFuture<Long> renew(long permits) {
+        long now = System.nanoTime();
+        long unused = available.getAndSet(0);
+        adapt(leased - unused, now);
+        long size = Math.max(permits, leaseSize);
+        return evalAsync(size, unused).thenApply(result -> {
+            latency.record(System.nanoTime() - now);
+            synchronized (this) {
+                long granted = result.get(0);
+                leased = Math.max(0, granted);
+                leaseStart = now;
+                available.set(leased);
+                expireAt = now + TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+                long delay = granted > 0 ? 0L : result.get(1);
+                denyCache.update(permits, delay);
+                return delay;
+            }
+        }).toCompletableFuture();
+    }
+
+    private CompletionStage<List<Long>> evalAsync(long size, long unused) {
+        String previousId = leaseId == null ? "" : leaseId;
+        long previousLeased = leased;
+        String nextId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        leaseId = nextId;
+        leased = 0;
+        return script.evalAsync(RScript.Mode.READ_WRITE, RateLimiterScripts.LEASE, RScript.ReturnType.MULTI, keys,
+                RateLimiterScripts.args(config, size, nextId, previousId, previousLeased, unused));
+    }
+
+    /**
+     * 按上个租约周期内的实际消耗调整租约大小
+     */
+    private void adapt(long used, long now) {
+        if (leaseStart == 0) {
+            return;
+        }
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(now - leaseStart));
+        double currentRate = (double) Math.max(0, used) / elapsedMillis;
+        observedRate = observedRate == 0 ? currentRate : (observedRate + currentRate) / 2;
+        leaseSize = Math.max(1, Math.min(maxLeaseSize, (long) Math.ceil(observedRate * leaseMillis)));
+    }
+}
@@ -0,0 +1,119 @@
+package limiter.api.impl;
+
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateLimiterConfig;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内无锁固定窗口 用于RateType.PER_CLIENT的固定窗口限流器
+ * 状态压缩在一个long中：高40位为窗口序号(相对创建时刻按时间间隔对齐)，低24位为窗口内已发放的令牌数，通过CAS更新
+ *
+ * @author kana
+ * @date 2026/10/18 21:00
+ */
+
+class LocalFixedWindow extends DelayedRateLimiterEngine {
+
+    private static final int COUNT_BITS = 24;
+
+    /**
+     * 一个窗口内支持的最大令牌数
+     */
+    static final long MAX_COUNT = (1L << COUNT_BITS) - 1;
+
+    private final long rate;
+
+    private final long intervalMillis;
+
+    private final long originNanos = System.nanoTime();
+
+    private final AtomicLong state = new AtomicLong();
+
+    private final RRateLimiter rateLimiter;
+
+    /**
+     * 注解或覆盖的原始配置 超出计数上限时本地按上限计数
+     */
+    private final RateLimiterConfig config;
+
+    /**
+     * @param rate           每个时间间隔放行的令牌数
+     * @param intervalMillis 时间间隔 毫秒
+     * @param rateLimiter    同名的Redisson限流器 只用于提供名称
+     * @param config         注解或覆盖的原始配置
+     * @param scheduler      异步获取时的重试定时器
+     */
+    LocalFixedWindow(long rate, long intervalMillis, RRateLimiter rateLimiter, RateLimiterConfig config,
+                     ScheduledExecutorService scheduler) {
+        super(scheduler);
+        if (!supports(rate) || intervalMillis <= 0) {
+            throw new IllegalArgumentException("Unsupported local rate: " + rate + "/" + intervalMillis + "ms");
+        }
+        this.rate = rate;
+        this.intervalMillis = intervalMillis;
+        this.rateLimiter = rateLimiter;
+        this.config = config;
+    }
+
+    static boolean supports(long rate) {
+        return rate > 0 && rate <= MAX_COUNT;
+    }
+
+    @Override
+    long tryAcquireOrDelay(long permits) {
+        if (permits <= 0 || permits > rate) {
+            throw new IllegalArgumentException("Requested permits amount could not exceed defined rate");
+        }
+        for (; ; ) {
+            long current = state.get();
+            long now = now();
+            long window = now / intervalMillis;
+            long count = (current >>> COUNT_BITS) == window ? current & MAX_COUNT : 0;
+            if (count + permits > rate) {
+                return Math.max(1, (window + 1) * intervalMillis - now);
+            }
+            if (state.compareAndSet(current, (window << COUNT_BITS) | (count + permits))) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public void refund(long permits) {
+        for (; ; ) {
+            long current = state.get();
+            long count = current & MAX_COUNT;
+            if ((current >>> COUNT_BITS) != now() / intervalMillis || count == 0) {
+                return;
+            }
+            if (state.compareAndSet(current, (current & ~MAX_COUNT) | Math.max(0, count - permits))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public RateLimiterConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 配置的令牌数超出窗口计数上限时按上限计算
+     */
+    @Override
+    public long getMaxPermits() {
+        return rate;
+    }
+
+    @Override
+    public RRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+    }
+}
@@ -0,0 +1,106 @@
+package limiter.api.impl;
+
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateLimiterConfig;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内无锁GCRA 用于RateType.PER_CLIENT的GCRA与漏桶限流器
+ * 只保存理论到达时间(相对创建时刻的纳秒数)，通过CAS更新
+ *
+ * @author kana
+ * @date 2026/10/18 20:50
+ */
+
+class LocalGcra extends DelayedRateLimiterEngine {
+
+    private final long rate;
+
+    /**
+     * 每个令牌的发放间隔 纳秒
+     */
+    private final double emissionNanos;
+
+    /**
+     * 允许的突发令牌数
+     */
+    private final long burst;
+
+    private final long originNanos = System.nanoTime();
+
+    private final AtomicLong tat = new AtomicLong();
+
+    private final RRateLimiter rateLimiter;
+
+    /**
+     * 注解或覆盖的原始配置
+     */
+    private final RateLimiterConfig config;
+
+    /**
+     * @param rate           每个时间间隔产生的令牌数
+     * @param intervalMillis 时间间隔 毫秒
+     * @param burst          允许的突发令牌数 漏桶为1
+     * @param rateLimiter    同名的Redisson限流器 只用于提供名称
+     * @param config         注解或覆盖的原始配置
+     * @param scheduler      异步获取时的重试定时器
+     */
+    LocalGcra(long rate, long intervalMillis, long burst, RRateLimiter rateLimiter, RateLimiterConfig config,
+              ScheduledExecutorService scheduler) {
+        super(scheduler);
+        if (rate <= 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("Unsupported local rate: " + rate + "/" + intervalMillis + "ms");
+        }
+        this.rate = rate;
+        this.emissionNanos = (double) TimeUnit.MILLISECONDS.toNanos(intervalMillis) / rate;
+        this.burst = burst;
+        this.rateLimiter = rateLimiter;
+        this.config = config;
+    }
+
+    @Override
+    long tryAcquireOrDelay(long permits) {
+        if (permits <= 0 || permits > rate) {
+            throw new IllegalArgumentException("Requested permits amount could not exceed defined rate");
+        }
+        long increment = (long) (emissionNanos * permits);
+        long tolerance = (long) (emissionNanos * Math.max(burst, permits));
+        for (; ; ) {
+            long current = tat.get();
+            long now = System.nanoTime() - originNanos;
+            long next = Math.max(current, now) + increment;
+            long allowAt = next - tolerance;
+            if (allowAt > now) {
+                return Math.max(1, TimeUnit.NANOSECONDS.toMillis(allowAt - now + TimeUnit.MILLISECONDS.toNanos(1) - 1));
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    @Override
+    public void refund(long permits) {
+        long increment = (long) (emissionNanos * permits);
+        for (; ; ) {
+            long current = tat.get();
+            long next = Math.max(System.nanoTime() - originNanos, current - increment);
+            if (next >= current || tat.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public RateLimiterConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public RRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+}
@@ -0,0 +1,105 @@
+package limiter.api.impl;
+
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateLimiterConfig;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内滑动窗口计数 用于RateType.PER_CLIENT的滑动窗口限流器
+ * 与Redis脚本的估算方式一致，窗口序号与两个计数需要一起更新，临界区很短，直接加锁
+ *
+ * @author kana
+ * @date 2026/10/18 21:05
+ */
+
+class LocalSlidingWindow extends DelayedRateLimiterEngine {
+
+    private final long rate;
+
+    private final long intervalMillis;
+
+    private final long originNanos = System.nanoTime();
+
+    private final RRateLimiter rateLimiter;
+
+    /**
+     * 注解或覆盖的原始配置
+     */
+    private final RateLimiterConfig config;
+
+    private long window;
+
+    private long current;
+
+    private long previous;
+
+    /**
+     * @param rate           每个时间间隔放行的令牌数
+     * @param intervalMillis 时间间隔 毫秒
+     * @param rateLimiter    同名的Redisson限流器 只用于提供名称
+     * @param config         注解或覆盖的原始配置
+     * @param scheduler      异步获取时的重试定时器
+     */
+    LocalSlidingWindow(long rate, long intervalMillis, RRateLimiter rateLimiter, RateLimiterConfig config,
+                       ScheduledExecutorService scheduler) {
+        super(scheduler);
+        if (rate <= 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("Unsupported local rate: " + rate + "/" + intervalMillis + "ms");
+        }
+        this.rate = rate;
+        this.intervalMillis = intervalMillis;
+        this.rateLimiter = rateLimiter;
+        this.config = config;
+    }
+
+    @Override
+    synchronized long tryAcquireOrDelay(long permits) {
+        if (permits <= 0 || permits > rate) {
+            throw new IllegalArgumentException("Requested permits amount could not exceed defined rate");
+        }
+        long now = now();
+        roll(now / intervalMillis);
+        double remaining = 1 - (double) (now - window * intervalMillis) / intervalMillis;
+        double excess = previous * remaining + current + permits - rate;
+        if (excess > 0) {
+            long nextWindow = (window + 1) * intervalMillis - now;
+            if (current + permits > rate || previous == 0) {
+                return Math.max(1, nextWindow);
+            }
+            return Math.max(1, (long) Math.ceil(Math.min(excess / previous * intervalMillis, nextWindow)));
+        }
+        current += permits;
+        return 0;
+    }
+
+    @Override
+    public synchronized void refund(long permits) {
+        if (window == now() / intervalMillis) {
+            current = Math.max(0, current - permits);
+        }
+    }
+
+    @Override
+    public RateLimiterConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public RRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    private void roll(long target) {
+        if (target != window) {
+            previous = target == window + 1 ? current : 0;
+            current = 0;
+            window = target;
+        }
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+    }
+}
@@ -0,0 +1,174 @@
+package limiter.api.impl;
+
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateLimiterConfig;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内无锁令牌桶 用于RateType.PER_CLIENT限流器
+ * 状态压缩在一个long中：高40位为上次补充令牌的时间(相对创建时刻的毫秒数)，低24位为剩余令牌数，通过CAS更新
+ *
+ * @author kana
+ * @date 2026/10/18 13:50
+ */
+
+class LocalTokenBucket extends DelayedRateLimiterEngine {
+
+    private static final int TOKEN_BITS = 24;
+
+    /**
+     * 本地令牌桶支持的最大容量
+     */
+    static final long MAX_TOKENS = (1L << TOKEN_BITS) - 1;
+
+    private final long capacity;
+
+    private final long intervalMillis;
+
+    private final long originNanos = System.nanoTime();
+
+    private final AtomicLong state;
+
+    private final RRateLimiter rateLimiter;
+
+    /**
+     * 注解或覆盖的原始配置 本地计数可能按比例换算
+     */
+    private final RateLimiterConfig config;
+
+    /**
+     * @param capacity       每个时间间隔产生的令牌数 即桶容量
+     * @param intervalMillis 时间间隔 毫秒
+     * @param rateLimiter    保存配置的Redisson限流器
+     * @param config         注解或覆盖的原始配置
+     * @param scheduler      异步获取时的重试定时器
+     */
+    LocalTokenBucket(long capacity, long intervalMillis, RRateLimiter rateLimiter, RateLimiterConfig config,
+                     ScheduledExecutorService scheduler) {
+        super(scheduler);
+        if (!supports(capacity) || intervalMillis <= 0) {
+            throw new IllegalArgumentException("Unsupported local rate: " + capacity + "/" + intervalMillis + "ms");
+        }
+        this.capacity = capacity;
+        this.intervalMillis = intervalMillis;
+        this.rateLimiter = rateLimiter;
+        this.config = config;
+        this.state = new AtomicLong(capacity);
+    }
+
+    static boolean supports(long rate) {
+        return rate > 0 && rate <= MAX_TOKENS;
+    }
+
+    @Override
+    public boolean tryAcquire(long permits) {
+        checkPermits(permits);
+        for (; ; ) {
+            long current = state.get();
+            long now = now();
+            long refreshed = refill(current, now);
+            long tokens = refreshed & MAX_TOKENS;
+            if (tokens < permits) {
+                return false;
+            }
+            if (state.compareAndSet(current, refreshed - permits)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public void refund(long permits) {
+        for (; ; ) {
+            long current = state.get();
+            long refreshed = refill(current, now());
+            long tokens = Math.min(capacity, (refreshed & MAX_TOKENS) + permits);
+            if (state.compareAndSet(current, (refreshed & ~MAX_TOKENS) | tokens)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 沿用剩余令牌 超出新容量的部分丢弃
+     */
+    @Override
+    public void inherit(RateLimiterEngine previous) {
+        if (previous instanceof LocalTokenBucket) {
+            state.set(pack(now(), Math.min(capacity, ((LocalTokenBucket) previous).availableTokens())));
+        }
+    }
+
+    private long availableTokens() {
+        return refill(state.get(), now()) & MAX_TOKENS;
+    }
+
+    @Override
+    long tryAcquireOrDelay(long permits) {
+        return tryAcquire(permits) ? 0 : millisToWait(permits);
+    }
+
+    @Override
+    public RateLimiterConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 配置的令牌数超出容量上限时按容量计算
+     */
+    @Override
+    public long getMaxPermits() {
+        return capacity;
+    }
+
+    @Override
+    public RRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * 按流逝时间补充令牌 只推进整数个令牌对应的时间 避免丢失不足一个令牌的部分
+     */
+    private long refill(long current, long now) {
+        long tokens = current & MAX_TOKENS;
+        long last = current >>> TOKEN_BITS;
+        long elapsed = now - last;
+        if (tokens == capacity || elapsed >= intervalMillis) {
+            return pack(now, capacity);
+        }
+        long added = elapsed * capacity / intervalMillis;
+        if (added <= 0) {
+            return current;
+        }
+        tokens += added;
+        if (tokens >= capacity) {
+            return pack(now, capacity);
+        }
+        return pack(last + added * intervalMillis / capacity, tokens);
+    }
+
+    private long millisToWait(long permits) {
+        long current = state.get();
+        long tokens = current & MAX_TOKENS;
+        long missing = Math.max(1, permits - tokens);
+        long waitMillis = (missing * intervalMillis + capacity - 1) / capacity - (now() - (current >>> TOKEN_BITS));
+        return Math.max(1, waitMillis);
+    }
+
+    private long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - originNanos);
+    }
+
+    private static long pack(long timestamp, long tokens) {
+        return (timestamp << TOKEN_BITS) | tokens;
+    }
+
+    private void checkPermits(long permits) {
+        if (permits <= 0 || permits > capacity) {
+            throw new IllegalArgumentException("Requested permits amount could not exceed defined rate");
+        }
+    }
+}
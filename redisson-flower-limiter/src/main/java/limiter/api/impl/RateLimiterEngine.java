@@ -0,0 +1,55 @@
+package limiter.api.impl;
+
+import limiter.api.LimiterHandle;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 限流器执行引擎 屏蔽本地令牌桶与Redis令牌桶的差异
+ *
+ * @author kana
+ * @date 2026/10/18 13:40
+ */
+
+interface RateLimiterEngine extends LimiterHandle {
+
+    /**
+     * 归还已获取但未使用的令牌 用于多个限流器同时获取失败、等待者在获取过程中超时时回滚
+     * 多个Redis令牌桶同时获取时在同一个脚本中完成，由脚本回滚，不调用此方法；自适应并发限流器归还并发数
+     *
+     * @param permits 令牌数
+     */
+    default void refund(long permits) {
+    }
+
+    /**
+     * 配置被覆盖后由新的限流器继承被替换的限流器的本地状态 Redis中的状态按名称共用，无需继承
+     *
+     * @param previous 被替换的限流器
+     */
+    default void inherit(RateLimiterEngine previous) {
+    }
+
+    /**
+     * 释放本地持有的资源 如归还未使用的租约令牌、停止同步并发上限
+     * 不等待Redis返回，可以在任意线程上调用
+     *
+     * @return 释放完成时完成 不会以异常结束
+     */
+    default CompletionStage<Void> release() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 异步获取的参数错误等异常统一以失败的结果返回 不在调用线程上抛出
+     *
+     * @param ex 异常
+     * @return 已失败的结果
+     */
+    static <T> CompletableFuture<T> failed(Throwable ex) {
+        CompletableFuture<T> failed = new CompletableFuture<>();
+        failed.completeExceptionally(ex);
+        return failed;
+    }
+}
@@ -0,0 +1,267 @@
+package limiter.api.impl;
+
+import org.redisson.RedissonObject;
+import org.redisson.api.RateLimiterConfig;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 限流Lua脚本 与Redisson RRateLimiter(3.17)的数据结构保持一致：
+ * name 为配置hash(rate/interval/type)，{name}:value 为剩余令牌，{name}:permits 为已发放令牌的有序集合(分值为发放时间)
+ * 每次写入后三个key的过期时间都刷新为一个时间间隔，空闲超过一个时间间隔后所有令牌均已释放，由Redis自动清理
+ * 配置通过LimiterService.getRateLimiter交给调用方后不再设置过期时间，调用方直接使用RRateLimiter时配置始终存在
+ *
+ * @author kana
+ * @date 2026/10/18 14:30
+ */
+
+final class RateLimiterScripts {
+
+    /**
+     * 同步配置并释放过期令牌 执行后 rate/interval/now/currentValue/created 可用
+     * 配置不存在时创建，与传入配置不同时就地更新，均不重置已发放的令牌；配置相同时不做任何写入
+     * KEYS[1] 配置 KEYS[2] 剩余令牌 KEYS[3] 已发放令牌
+     * ARGV[1] 令牌数 ARGV[2] 时间间隔毫秒 ARGV[3] 类型 ARGV[4] 当前毫秒
+     */
+    private static final String PREPARE =
+            "local rate = tonumber(ARGV[1]);"
+                    + "local interval = tonumber(ARGV[2]);"
+                    + "local now = tonumber(ARGV[4]);"
+                    + "local config = redis.call('hmget', KEYS[1], 'rate', 'interval', 'type');"
+                    + "local created = config[1] == false;"
+                    + "if config[1] == false or tonumber(config[1]) ~= rate or tonumber(config[2]) ~= interval or config[3] ~= ARGV[3] then "
+                    + "    redis.call('hmset', KEYS[1], 'rate', ARGV[1], 'interval', ARGV[2], 'type', ARGV[3]);"
+                    + "end;"
+                    + "local currentValue = redis.call('get', KEYS[2]);"
+                    + "if currentValue == false then "
+                    + "    currentValue = rate;"
+                    + "else "
+                    + "    currentValue = tonumber(currentValue);"
+                    + "%s"
+                    + "    local expiredValues = redis.call('zrangebyscore', KEYS[3], 0, now - interval);"
+                    + "    local released = 0;"
+                    + "    for i, v in ipairs(expiredValues) do "
+                    + "        local random, permits = struct.unpack('Bc0I', v);"
+                    + "        released = released + permits;"
+                    + "    end;"
+                    + "    if released > 0 then "
+                    + "        redis.call('zremrangebyscore', KEYS[3], 0, now - interval);"
+                    + "        currentValue = currentValue + released;"
+                    + "    end;"
+                    + "    if currentValue > rate or redis.call('zcard', KEYS[3]) == 0 then "
+                    + "        currentValue = rate;"
+                    + "    end;"
+                    + "end;";
+
+    /**
+     * 刷新过期时间 剩余令牌在写入时通过PX设置；已存在且没有过期时间的配置保持常驻
+     */
+    private static final String EXPIRE =
+            "if created or redis.call('pttl', KEYS[1]) >= 0 then "
+                    + "    redis.call('pexpire', KEYS[1], interval);"
+                    + "end;"
+                    + "redis.call('pexpire', KEYS[3], interval);";
+
+    /**
+     * 计算距离最早发放的令牌过期的毫秒数
+     */
+    private static final String NEXT_RELEASE =
+            "local firstValue = redis.call('zrange', KEYS[3], 0, 0, 'withscores');"
+                    + "local delay = 1;"
+                    + "if firstValue[2] ~= nil then "
+                    + "    delay = math.max(1, 3 + interval - (now - tonumber(firstValue[2])));"
+                    + "end;";
+
+    /**
+     * 获取令牌 与RRateLimiter.tryAcquire一致，但获取失败时返回等待时间
+     * KEYS[1] 配置 KEYS[2] 剩余令牌 KEYS[3] 已发放令牌
+     * ARGV[1-4] 见PREPARE ARGV[5] 令牌数 ARGV[6] 本次发放的标识
+     * 返回 获取成功为nil，否则为距离下次释放令牌的毫秒数
+     */
+    static final String TRY_ACQUIRE =
+            String.format(PREPARE, "")
+                    + "assert(rate >= tonumber(ARGV[5]), 'Requested permits amount could not exceed defined rate');"
+                    + "if currentValue < tonumber(ARGV[5]) then "
+                    + "    redis.call('set', KEYS[2], currentValue, 'px', interval);"
+                    + EXPIRE
+                    + NEXT_RELEASE
+                    + "    return delay;"
+                    + "end;"
+                    + "redis.call('zadd', KEYS[3], now, struct.pack('Bc0I', string.len(ARGV[6]), ARGV[6], tonumber(ARGV[5])));"
+                    + "redis.call('set', KEYS[2], currentValue - tonumber(ARGV[5]), 'px', interval);"
+                    + EXPIRE
+                    + "return nil;";
+
+    /**
+     * 批量租约
+     * KEYS[1] 配置 KEYS[2] 剩余令牌 KEYS[3] 已发放令牌
+     * ARGV[1-4] 见PREPARE ARGV[5] 期望租约数 ARGV[6] 新租约标识 ARGV[7] 旧租约标识 ARGV[8] 旧租约数 ARGV[9] 旧租约未使用数
+     * 返回 {实际租到的令牌数, 租不到时距离下次释放令牌的毫秒数}
+     */
+    static final String LEASE =
+            String.format(PREPARE,
+                    "    if tonumber(ARGV[9]) > 0 then "
+                            + "        local old = struct.pack('Bc0I', string.len(ARGV[7]), ARGV[7], tonumber(ARGV[8]));"
+                            + "        local score = redis.call('zscore', KEYS[3], old);"
+                            + "        if score ~= false then "
+                            + "            redis.call('zrem', KEYS[3], old);"
+                            + "            local used = tonumber(ARGV[8]) - tonumber(ARGV[9]);"
+                            + "            if used > 0 then "
+                            + "                redis.call('zadd', KEYS[3], score, struct.pack('Bc0I', string.len(ARGV[7]), ARGV[7], used));"
+                            + "            end;"
+                            + "            currentValue = currentValue + tonumber(ARGV[9]);"
+                            + "        end;"
+                            + "    end;")
+                    + "local granted = math.min(tonumber(ARGV[5]), currentValue);"
+                    + "if granted > 0 then "
+                    + "    redis.call('zadd', KEYS[3], now, struct.pack('Bc0I', string.len(ARGV[6]), ARGV[6], granted));"
+                    + "    currentValue = currentValue - granted;"
+                    + "end;"
+                    + "redis.call('set', KEYS[2], currentValue, 'px', interval);"
+                    + EXPIRE
+                    + "if granted > 0 then "
+                    + "    return {granted, 0};"
+                    + "end;"
+                    + NEXT_RELEASE
+                    + "return {0, delay};";
+
+    /**
+     * 同时从多个令牌桶获取令牌 任一令牌桶不足时都不扣减
+     * KEYS 每个令牌桶依次三个key：配置、剩余令牌、已发放令牌
+     * ARGV[1] 当前毫秒 ARGV[2] 本次发放的标识 之后每个令牌桶依次四个参数：令牌数、时间间隔毫秒、类型、获取令牌数
+     * 返回 {0, 0}表示全部获取成功，否则为{第一个令牌不足的令牌桶序号(从1开始), 该令牌桶距离下次释放令牌的毫秒数}
+     */
+    static final String TRY_ACQUIRE_ALL =
+            "local now = tonumber(ARGV[1]);"
+                    + "local n = #KEYS / 3;"
+                    + "local values = {};"
+                    + "local intervals = {};"
+                    + "local created = {};"
+                    + "local denied = 0;"
+                    + "for i = 1, n do "
+                    + "    local k = (i - 1) * 3;"
+                    + "    local a = 2 + (i - 1) * 4;"
+                    + "    local rate = tonumber(ARGV[a + 1]);"
+                    + "    local interval = tonumber(ARGV[a + 2]);"
+                    + "    local permits = tonumber(ARGV[a + 4]);"
+                    + "    assert(rate >= permits, 'Requested permits amount could not exceed defined rate');"
+                    + "    local config = redis.call('hmget', KEYS[k + 1], 'rate', 'interval', 'type');"
+                    + "    created[i] = config[1] == false;"
+                    + "    if config[1] == false or tonumber(config[1]) ~= rate or tonumber(config[2]) ~= interval or config[3] ~= ARGV[a + 3] then "
+                    + "        redis.call('hmset', KEYS[k + 1], 'rate', ARGV[a + 1], 'interval', ARGV[a + 2], 'type', ARGV[a + 3]);"
+                    + "    end;"
+                    + "    local currentValue = redis.call('get', KEYS[k + 2]);"
+                    + "    if currentValue == false then "
+                    + "        currentValue = rate;"
+                    + "    else "
+                    + "        currentValue = tonumber(currentValue);"
+                    + "        local expiredValues = redis.call('zrangebyscore', KEYS[k + 3], 0, now - interval);"
+                    + "        local released = 0;"
+                    + "        for j, v in ipairs(expiredValues) do "
+                    + "            local random, expired = struct.unpack('Bc0I', v);"
+                    + "            released = released + expired;"
+                    + "        end;"
+                    + "        if released > 0 then "
+                    + "            redis.call('zremrangebyscore', KEYS[k + 3], 0, now - interval);"
+                    + "            currentValue = currentValue + released;"
+                    + "        end;"
+                    + "        if currentValue > rate or redis.call('zcard', KEYS[k + 3]) == 0 then "
+                    + "            currentValue = rate;"
+                    + "        end;"
+                    + "    end;"
+                    + "    values[i] = currentValue;"
+                    + "    intervals[i] = interval;"
+                    + "    if currentValue < permits then "
+                    + "        denied = i;"
+                    + "        break;"
+                    + "    end;"
+                    + "end;"
+                    // 不足时只写回已释放的令牌
+                    + "for i = 1, #values do "
+                    + "    local k = (i - 1) * 3;"
+                    + "    local value = values[i];"
+                    + "    if denied == 0 then "
+                    + "        local permits = tonumber(ARGV[2 + i * 4]);"
+                    + "        redis.call('zadd', KEYS[k + 3], now, struct.pack('Bc0I', string.len(ARGV[2]), ARGV[2], permits));"
+                    + "        value = value - permits;"
+                    + "    end;"
+                    + "    redis.call('set', KEYS[k + 2], value, 'px', intervals[i]);"
+                    + "    if created[i] or redis.call('pttl', KEYS[k + 1]) >= 0 then "
+                    + "        redis.call('pexpire', KEYS[k + 1], intervals[i]);"
+                    + "    end;"
+                    + "    redis.call('pexpire', KEYS[k + 3], intervals[i]);"
+                    + "end;"
+                    + "if denied == 0 then "
+                    + "    return {0, 0};"
+                    + "end;"
+                    + "local firstValue = redis.call('zrange', KEYS[denied * 3], 0, 0, 'withscores');"
+                    + "local delay = 1;"
+                    + "if firstValue[2] ~= nil then "
+                    + "    delay = math.max(1, 3 + intervals[denied] - (now - tonumber(firstValue[2])));"
+                    + "end;"
+                    + "return {denied, delay};";
+
+    /**
+     * 归还TRY_ACQUIRE_ALL发放的令牌 用于集群模式下跨slot分组获取时部分分组失败的回滚
+     * KEYS 每个令牌桶依次三个key：配置、剩余令牌、已发放令牌
+     * ARGV[1] 发放时的标识 之后每个令牌桶依次一个参数：获取令牌数
+     */
+    static final String RELEASE_ALL =
+            "for i = 1, #KEYS / 3 do "
+                    + "    local k = (i - 1) * 3;"
+                    + "    local permits = tonumber(ARGV[1 + i]);"
+                    + "    local member = struct.pack('Bc0I', string.len(ARGV[1]), ARGV[1], permits);"
+                    + "    if redis.call('zrem', KEYS[k + 3], member) == 1 and redis.call('exists', KEYS[k + 2]) == 1 then "
+                    + "        redis.call('incrby', KEYS[k + 2], permits);"
+                    + "    end;"
+                    + "end;";
+
+    /**
+     * 归还TRY_ACQUIRE发放的令牌 用于等待者在获取过程中超时后回滚
+     * 发放标识只在获取时使用，按令牌数删除最近发放的一条记录，同样数量的令牌无论由哪次获取发放都可以互相替代
+     * KEYS[1] 配置 KEYS[2] 剩余令牌 KEYS[3] 已发放令牌
+     * ARGV[1] 令牌数
+     */
+    static final String REFUND =
+            "local members = redis.call('zrevrange', KEYS[3], 0, 99);"
+                    + "for i, v in ipairs(members) do "
+                    + "    local random, permits = struct.unpack('Bc0I', v);"
+                    + "    if permits == tonumber(ARGV[1]) then "
+                    + "        redis.call('zrem', KEYS[3], v);"
+                    + "        if redis.call('exists', KEYS[2]) == 1 then "
+                    + "            redis.call('incrby', KEYS[2], permits);"
+                    + "        end;"
+                    + "        return 1;"
+                    + "    end;"
+                    + "end;"
+                    + "return 0;";
+
+    private RateLimiterScripts() {
+    }
+
+    /**
+     * @param name 限流器名称
+     * @return 脚本使用的key 配置、剩余令牌、已发放令牌
+     */
+    static List<Object> keys(String name) {
+        return Arrays.<Object>asList(name, RedissonObject.suffixName(name, "value"), RedissonObject.suffixName(name, "permits"));
+    }
+
+    /**
+     * 拼接脚本参数 前四个参数固定为限流器配置与当前时间
+     *
+     * @param config 限流器配置
+     * @param args   脚本自身的参数
+     * @return 完整参数
+     */
+    static Object[] args(RateLimiterConfig config, Object... args) {
+        Object[] values = new Object[args.length + 4];
+        values[0] = config.getRate();
+        values[1] = config.getRateInterval();
+        values[2] = config.getRateType().ordinal();
+        values[3] = System.currentTimeMillis();
+        System.arraycopy(args, 0, values, 4, args.length);
+        return values;
+    }
+}
@@ -0,0 +1,55 @@
+package limiter.api.impl;
+
+import lombok.EqualsAndHashCode;
+import org.redisson.api.RateLimiterConfig;
+import org.redisson.api.RateType;
+
+/**
+ * 运行时覆盖的令牌数与时间间隔 Redis中保存为"令牌数/时间间隔毫秒"，省略时间间隔时沿用注解配置
+ *
+ * @author kana
+ * @date 2026/10/18 22:40
+ */
+
+@EqualsAndHashCode
+final class RateOverride {
+
+    private final long rate;
+
+    /**
+     * 时间间隔 毫秒 0表示沿用注解配置
+     */
+    private final long intervalMillis;
+
+    RateOverride(long rate, long intervalMillis) {
+        if (rate <= 0 || intervalMillis < 0) {
+            throw new IllegalArgumentException("Unsupported rate override: " + rate + "/" + intervalMillis + "ms");
+        }
+        this.rate = rate;
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * @param value 令牌数/时间间隔毫秒 或 令牌数
+     */
+    static RateOverride parse(String value) {
+        int separator = value.indexOf('/');
+        if (separator == -1) {
+            return new RateOverride(Long.parseLong(value.trim()), 0);
+        }
+        return new RateOverride(Long.parseLong(value.substring(0, separator).trim()),
+                Long.parseLong(value.substring(separator + 1).trim()));
+    }
+
+    /**
+     * @param rateType       注解配置的类型 不可覆盖
+     * @param intervalMillis 注解配置的时间间隔
+     */
+    RateLimiterConfig apply(RateType rateType, long intervalMillis) {
+        return new RateLimiterConfig(rateType, this.intervalMillis > 0 ? this.intervalMillis : intervalMillis, rate);
+    }
+
+    String format() {
+        return intervalMillis > 0 ? rate + "/" + intervalMillis : String.valueOf(rate);
+    }
+}
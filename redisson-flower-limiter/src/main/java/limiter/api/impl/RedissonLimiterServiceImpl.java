@@ -1,16 +1,50 @@
 package limiter.api.impl;
 
-import com.google.common.collect.Maps;
+import cn.hutool.core.util.StrUtil;
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import limiter.api.LimiterHandle;
 import limiter.api.LimiterService;
+import limiter.api.RateAlgorithm;
 import limiter.configuration.LimiterConfig;
 import limiter.configuration.RedissonConfig;
+import limiter.metrics.LatencyRecorder;
+import limiter.metrics.LimiterMetrics;
+import org.redisson.api.RMap;
 import org.redisson.api.RRateLimiter;
+import org.redisson.api.RScript;
+import org.redisson.api.RTopic;
 import org.redisson.api.RateIntervalUnit;
+import org.redisson.api.RateLimiterConfig;
 import org.redisson.api.RateType;
 import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.BaseStatusListener;
+import org.redisson.client.codec.StringCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -22,90 +56,394 @@ import java.util.concurrent.TimeUnit;
 
 public class RedissonLimiterServiceImpl extends AbstractRedissonService implements LimiterService, DisposableBean {
 
+    private static final Logger logger = LoggerFactory.getLogger(RedissonLimiterServiceImpl.class);
+
+    /**
+     * 客户端流控器 按数量和空闲时间淘汰，避免按参数生成的限流器无限增长
+     */
+    private final Cache<String, RateLimiterEngine> limiterCache;
+
+    /**
+     * 流控器Map视图 查询时不计入命中统计
+     */
+    private final Map<String, RateLimiterEngine> limiterMap;
+
+    /**
+     * 所有限流脚本共用 与客户端默认编码无关
+     */
+    private final RScript script;
+
+    /**
+     * 租约模式下单个租约的有效时长 毫秒
+     */
+    private long leaseMillis = DEFAULT_LEASE_MILLIS;
+
+    /**
+     * 限流器空闲淘汰时间 毫秒
+     */
+    private long registryExpireMillis = DEFAULT_REGISTRY_EXPIRE_MILLIS;
+
+    /**
+     * 分布式限流器令牌不足后是否在本地拒绝直到下次释放令牌
+     */
+    private boolean denyCache = true;
+
+    /**
+     * 通过initRateLimiter显式登记的限流器参数 本地限流器空闲淘汰后按名称获取令牌时据此重建
+     * 切面按调用解析的限流器不在此登记，避免按入参拼接的名称无限增长
+     */
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * 运行时覆盖的限流配置 只在创建限流器时读取，获取令牌时不查找
+     */
+    private final Map<String, RateOverride> rateOverrides = new ConcurrentHashMap<>();
+
+    /**
+     * 配置被覆盖后替换下来的限流器 新的限流器创建时继承其本地状态
+     */
+    private final Map<String, RateLimiterEngine> retiredLimiters = new ConcurrentHashMap<>();
+
     /**
-     * 客户端流控器Map
+     * 保存覆盖配置的hash与通知频道 为null时不开启
      */
-    private final Map<String, RRateLimiter> limiterMap = Maps.newConcurrentMap();
+    private String overrideKey;
+
+    private RTopic overrideTopic;
+
+    private final List<Integer> overrideListeners = new ArrayList<>();
+
+    /**
+     * 热点限流器阈值 单个节点每秒访问Redis的次数 为0时不检测
+     */
+    private long hotKeyThreshold;
+
+    /**
+     * 热点统计 由获取令牌的路径写入，为null时不检测
+     */
+    private HotKeySketch hotKeySketch;
+
+    /**
+     * 热点检测线程 不占用等待令牌的定时器线程
+     */
+    private ScheduledExecutorService hotKeyDetector;
+
+    /**
+     * 因访问过热自动切换为租约模式的限流器 访问回落后切换回来
+     */
+    private final Set<RedissonRateLimiterEngine> promotedLimiters = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private long lastDetectNanos = System.nanoTime();
+
+    /**
+     * Redis调用耗时 按操作区分
+     */
+    private LatencyRecorder acquireLatency = LatencyRecorder.NOOP;
+
+    private LatencyRecorder leaseLatency = LatencyRecorder.NOOP;
+
+    private LatencyRecorder acquireAllLatency = LatencyRecorder.NOOP;
+
+    /**
+     * 等待令牌时的唤醒定时器 所有限流器共用一个线程
+     */
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("limiter-timer-%d").setDaemon(true).build());
 
     public RedissonLimiterServiceImpl(RedissonClient redissonClient) {
+        this(redissonClient, new RedissonConfig());
+    }
+
+    /**
+     * 复用应用已有的RedissonClient 不再单独创建连接池与netty线程，关闭时也不关闭该客户端
+     *
+     * @param redissonClient 已有的客户端
+     * @param redissonConfig 限流器配置 客户端相关的配置项不生效
+     */
+    public RedissonLimiterServiceImpl(RedissonClient redissonClient, RedissonConfig redissonConfig) {
         super(redissonClient);
+        this.script = redissonClient.getScript(LIMITER_CODEC);
+        this.limiterCache = buildLimiterCache(redissonConfig);
+        this.limiterMap = limiterCache.asMap();
+        subscribeRateOverrides(redissonConfig.getOverrideKey());
+        startHotKeyDetection();
     }
 
     public RedissonLimiterServiceImpl(LimiterConfig limiterConfig, RedissonConfig redissonConfig) {
         super(limiterConfig, redissonConfig);
+        this.script = redissonClient.getScript(LIMITER_CODEC);
+        this.limiterCache = buildLimiterCache(redissonConfig);
+        this.limiterMap = limiterCache.asMap();
+        subscribeRateOverrides(redissonConfig.getOverrideKey());
+        startHotKeyDetection();
+    }
+
+    /**
+     * 设置限流指标 需在创建限流器之前调用
+     *
+     * @param limiterMetrics 限流指标
+     */
+    public void setLimiterMetrics(LimiterMetrics limiterMetrics) {
+        this.acquireLatency = limiterMetrics.redisLatency("acquire");
+        this.leaseLatency = limiterMetrics.redisLatency("lease");
+        this.acquireAllLatency = limiterMetrics.redisLatency("acquire_all");
+    }
+
+    private Cache<String, RateLimiterEngine> buildLimiterCache(RedissonConfig redissonConfig) {
+        if (Objects.nonNull(redissonConfig.getLeaseMillis())) {
+            this.leaseMillis = redissonConfig.getLeaseMillis();
+        }
+        long maximumSize = Objects.nonNull(redissonConfig.getRegistryMaximumSize())
+                ? redissonConfig.getRegistryMaximumSize() : DEFAULT_REGISTRY_MAXIMUM_SIZE;
+        if (Objects.nonNull(redissonConfig.getRegistryExpireMillis())) {
+            this.registryExpireMillis = redissonConfig.getRegistryExpireMillis();
+        }
+        if (Objects.nonNull(redissonConfig.getDenyCache())) {
+            this.denyCache = redissonConfig.getDenyCache();
+        }
+        if (Objects.nonNull(redissonConfig.getHotKeyThreshold())) {
+            this.hotKeyThreshold = redissonConfig.getHotKeyThreshold();
+        }
+        return CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(registryExpireMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                // 被淘汰的租约限流器归还未使用的令牌 不等待Redis返回
+                .removalListener((RemovalListener<String, RateLimiterEngine>) notification -> {
+                    RateLimiterEngine engine = notification.getValue();
+                    if (engine != null) {
+                        promotedLimiters.remove(engine);
+                    }
+                    if (notification.wasEvicted() && engine != null) {
+                        engine.release();
+                    }
+                })
+                .build();
     }
 
     @Override
-    public void initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, String name) {
-        this.initRateLimiter(rate, rateInterval, rateIntervalUnit, RateType.OVERALL, name);
+    public LimiterHandle initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, String name) {
+        return this.initRateLimiter(rate, rateInterval, rateIntervalUnit, RateType.OVERALL, name);
     }
 
     @Override
-    public void initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType, String name) {
-        if (limiterMap.containsKey(name)) {
-            return;
+    public LimiterHandle initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType, String name) {
+        return this.initRateLimiter(rate, rateInterval, rateIntervalUnit, rateType, false, name);
+    }
+
+    @Override
+    public LimiterHandle initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType, boolean lease, String name) {
+        return this.initRateLimiter(rate, rateInterval, rateIntervalUnit, rateType, RateAlgorithm.TOKEN_BUCKET, lease, name);
+    }
+
+    /**
+     * 只在本地登记限流器 不访问Redis，Redis中的配置与状态随首次获取令牌在同一个脚本中创建
+     * 登记的参数常驻内存，本地限流器空闲淘汰后按名称获取令牌时自动重建
+     */
+    @Override
+    public LimiterHandle initRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType,
+                                         RateAlgorithm algorithm, boolean lease, String name) {
+        Registration registration = new Registration(new RateLimiterConfig(rateType, rateIntervalUnit.toMillis(rateInterval), rate),
+                algorithm, lease);
+        registrations.put(name, registration);
+        return load(name, () -> create(name, registration));
+    }
+
+    @Override
+    public LimiterHandle resolveRateLimiter(long rate, long rateInterval, RateIntervalUnit rateIntervalUnit, RateType rateType,
+                                            RateAlgorithm algorithm, boolean lease, String name) {
+        return load(name, () -> create(name, new Registration(
+                new RateLimiterConfig(rateType, rateIntervalUnit.toMillis(rateInterval), rate), algorithm, lease)));
+    }
+
+    /**
+     * 登记本地限流器 已存在时直接返回
+     */
+    private RateLimiterEngine load(String name, Callable<RateLimiterEngine> loader) {
+        try {
+            return limiterCache.get(name, loader);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
         }
-        RRateLimiter rateLimiter = redissonClient.getRateLimiter(name);
-        //如果初始化失败说明已经存在，可能是之前重启过而key未清理 更新一下key
-        if (!rateLimiter.trySetRate(rateType, rate, rateInterval, rateIntervalUnit)) {
-            rateLimiter.setRate(rateType, rate, rateInterval, rateIntervalUnit);
-            limiterMap.putIfAbsent(name, rateLimiter);
-            return;
+    }
+
+    @Override
+    public LimiterHandle handle(String name) {
+        RateLimiterEngine engine = limiterMap.get(name);
+        if (engine != null) {
+            return engine;
+        }
+        Registration registration = registrations.get(name);
+        if (registration == null) {
+            throw new IllegalStateException("限流器未初始化或已被淘汰: " + name);
+        }
+        return load(name, () -> create(name, registration));
+    }
+
+    /**
+     * 创建本地限流器 存在覆盖配置时使用覆盖的令牌数与时间间隔
+     */
+    private RateLimiterEngine create(String name, Registration registration) {
+        RateLimiterConfig config = registration.config;
+        RateOverride override = rateOverrides.get(name);
+        if (override != null) {
+            config = override.apply(config.getRateType(), config.getRateInterval());
         }
-        limiterMap.putIfAbsent(name, rateLimiter);
+        RateLimiterEngine engine = createEngine(config, registration.algorithm, registration.lease, redissonClient.getRateLimiter(name));
+        RateLimiterEngine previous = retiredLimiters.remove(name);
+        if (previous != null) {
+            engine.inherit(previous);
+        }
+        return engine;
     }
 
+    @Override
+    public CacheStats getLimiterStats() {
+        return limiterCache.stats();
+    }
+
+    @Override
+    public long getLimiterSize() {
+        return limiterCache.size();
+    }
+
+    /**
+     * 配置平时只在获取令牌的脚本中写入 交给调用方前确保配置存在，直接使用RRateLimiter时不会报未初始化
+     * 已存在的配置不覆盖，不重置已发放的令牌；新写入的配置与脚本写入的一样随空闲过期，不改为常驻
+     * 只有OVERALL令牌桶的状态保存在RRateLimiter中，其余限流器返回的RRateLimiter与实际计数无关，直接抛出异常
+     */
     @Override
     public RRateLimiter getRateLimiter(String name) {
-        return limiterMap.get(name);
+        LimiterHandle handle = handle(name);
+        if (!(handle instanceof RedissonRateLimiterEngine) && !(handle instanceof LeasedRateLimiterEngine)) {
+            throw new IllegalStateException("只有OVERALL令牌桶可以直接使用RRateLimiter,请使用LimiterHandle: " + name);
+        }
+        RRateLimiter rateLimiter = handle.getRateLimiter();
+        RateLimiterConfig config = handle.getConfig();
+        if (rateLimiter.trySetRate(config.getRateType(), config.getRate(), config.getRateInterval(), RateIntervalUnit.MILLISECONDS)) {
+            rateLimiter.expire(Duration.ofMillis(registryExpireMillis));
+        }
+        return rateLimiter;
     }
 
     @Override
     public Boolean tryAcquire(String name) {
-        if (!limiterMap.containsKey(name)) {
-            return false;
-        }
-        return limiterMap.get(name).tryAcquire();
+        return handle(name).tryAcquire(1);
     }
 
     @Override
     public Boolean tryAcquire(String name, long permits) {
-        if (!limiterMap.containsKey(name)) {
-            return false;
-        }
-        return limiterMap.get(name).tryAcquire(permits);
+        return handle(name).tryAcquire(permits);
     }
 
     @Override
     public Boolean tryAcquire(String name, long timeout, TimeUnit unit) {
-        if (!limiterMap.containsKey(name)) {
-            return false;
-        }
-        return limiterMap.get(name).tryAcquire(timeout, unit);
+        return handle(name).tryAcquire(1, timeout, unit);
     }
 
     @Override
     public Boolean tryAcquire(String name, long permits, long timeout, TimeUnit unit) {
-        if (!limiterMap.containsKey(name)) {
-            return false;
-        }
-        return limiterMap.get(name).tryAcquire(permits, timeout, unit);
+        return handle(name).tryAcquire(permits, timeout, unit);
     }
 
     @Override
     public void acquire(String name) {
-        if (!limiterMap.containsKey(name)) {
-            return;
-        }
-        limiterMap.get(name).acquire();
+        handle(name).acquire(1);
     }
 
     @Override
     public void acquire(String name, long permits) {
-        if (!limiterMap.containsKey(name)) {
-            return;
+        handle(name).acquire(permits);
+    }
+
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(String name, long permits) {
+        return handle(name).tryAcquireAsync(permits);
+    }
+
+    @Override
+    public CompletionStage<Boolean> tryAcquireAsync(String name, long permits, long timeout, TimeUnit unit) {
+        return handle(name).tryAcquireAsync(permits, timeout, unit);
+    }
+
+    @Override
+    public CompletionStage<Void> acquireAsync(String name, long permits) {
+        return handle(name).acquireAsync(permits);
+    }
+
+    @Override
+    public int tryAcquireAll(List<LimiterHandle> handles, long[] permits) {
+        return DelayedRateLimiterEngine.join(tryAcquireAllAsync(handles, permits));
+    }
+
+    @Override
+    public boolean isAtomic(List<LimiterHandle> handles) {
+        return CompositeAcquirer.isAtomic(engines(handles), redissonClient.getConfig().isClusterConfig());
+    }
+
+    @Override
+    public CompletionStage<Integer> tryAcquireAllAsync(List<LimiterHandle> handles, long[] permits) {
+        return CompositeAcquirer.tryAcquireAll(script, engines(handles), permits,
+                redissonClient.getConfig().isClusterConfig(), acquireAllLatency);
+    }
+
+    private static List<RateLimiterEngine> engines(List<LimiterHandle> handles) {
+        List<RateLimiterEngine> engines = new ArrayList<>(handles.size());
+        for (LimiterHandle handle : handles) {
+            Preconditions.checkArgument(handle instanceof RateLimiterEngine, "不支持的限流器句柄: %s", handle.getName());
+            engines.add((RateLimiterEngine) handle);
+        }
+        return engines;
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquireReactive(String name, long permits) {
+        return Mono.defer(() -> Mono.fromCompletionStage(tryAcquireAsync(name, permits)));
+    }
+
+    @Override
+    public Mono<Boolean> tryAcquireReactive(String name, long permits, long timeout, TimeUnit unit) {
+        return Mono.defer(() -> Mono.fromCompletionStage(tryAcquireAsync(name, permits, timeout, unit)));
+    }
+
+    @Override
+    public Mono<Void> acquireReactive(String name, long permits) {
+        return Mono.defer(() -> Mono.fromCompletionStage(acquireAsync(name, permits)));
+    }
+
+    @Override
+    public void loadScripts() {
+        List<String> scripts = Arrays.asList(RateLimiterScripts.TRY_ACQUIRE, RateLimiterScripts.LEASE,
+                RateLimiterScripts.TRY_ACQUIRE_ALL, RateLimiterScripts.RELEASE_ALL,
+                AlgorithmScripts.GCRA, AlgorithmScripts.GCRA_REFUND, AlgorithmScripts.SLIDING_WINDOW,
+                AlgorithmScripts.SLIDING_WINDOW_REFUND, AlgorithmScripts.FIXED_WINDOW, AlgorithmScripts.FIXED_WINDOW_REFUND,
+                AlgorithmScripts.ADAPTIVE_SYNC);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[scripts.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = script.scriptLoadAsync(scripts.get(i)).toCompletableFuture();
         }
-        limiterMap.get(name).acquire(permits);
+        DelayedRateLimiterEngine.join(CompletableFuture.allOf(futures));
+    }
+
+    @Override
+    public void setRateOverride(String name, long rate, long rateInterval, RateIntervalUnit rateIntervalUnit) {
+        Preconditions.checkState(overrideKey != null, "未配置mid.limiter.override-key");
+        RateOverride override = new RateOverride(rate, rateIntervalUnit.toMillis(rateInterval));
+        redissonClient.<String, String>getMap(overrideKey, StringCodec.INSTANCE).fastPut(name, override.format());
+        overrideTopic.publish(name);
+    }
+
+    @Override
+    public void removeRateOverride(String name) {
+        Preconditions.checkState(overrideKey != null, "未配置mid.limiter.override-key");
+        redissonClient.<String, String>getMap(overrideKey, StringCodec.INSTANCE).fastRemove(name);
+        overrideTopic.publish(name);
     }
 
     @Override
@@ -115,26 +453,254 @@ public class RedissonLimiterServiceImpl extends AbstractRedissonService implemen
 
     @Override
     public void destroy() throws Exception {
-        // 关闭Redisson实例
-        redissonClient.shutdown();
-    }
-
-   /* private void initLimitConfig(LimiterConfig limiterConfig, ApplicationContext applicationContext) {
-        Map<String, RedisTemplate> redisTemplateMap = applicationContext.getBeansOfType(RedisTemplate.class);
-        if (MapUtil.isNotEmpty(redisTemplateMap)) {
-            RedisTemplate redisTemplate = null;
-            Set<Map.Entry<String, RedisTemplate>> entrySet = redisTemplateMap.entrySet();
-            for (Map.Entry<String, RedisTemplate> entry : entrySet) {
-                if (Objects.nonNull(redisTemplate)) {
-                    break;
+        if (overrideTopic != null) {
+            for (Integer listener : overrideListeners) {
+                overrideTopic.removeListener(listener);
+            }
+        }
+        // 归还本地持有的租约令牌 关闭客户端前等待归还完成
+        List<CompletableFuture<Void>> releases = new ArrayList<>();
+        for (RateLimiterEngine engine : limiterMap.values()) {
+            releases.add(engine.release().toCompletableFuture());
+        }
+        CompletableFuture.allOf(releases.toArray(new CompletableFuture<?>[0])).join();
+        scheduler.shutdownNow();
+        if (hotKeyDetector != null) {
+            hotKeyDetector.shutdownNow();
+        }
+        // 关闭自行创建的Redisson实例 复用的实例由外部关闭
+        if (!sharedClient) {
+            redissonClient.shutdown();
+        }
+    }
+
+    /**
+     * 启动时同步加载覆盖配置，之后按频道通知逐个更新；订阅建立(包括断线重连)时全量加载，补上断线期间错过的通知
+     */
+    private void subscribeRateOverrides(String overrideKey) {
+        if (StrUtil.isBlank(overrideKey)) {
+            return;
+        }
+        this.overrideKey = overrideKey;
+        try {
+            applyRateOverrides(DelayedRateLimiterEngine.join(overrideMap().readAllMapAsync()));
+        } catch (RuntimeException e) {
+            logger.warn("加载限流覆盖配置失败,key:{}", overrideKey, e);
+        }
+        this.overrideTopic = redissonClient.getTopic(overrideKey, StringCodec.INSTANCE);
+        overrideListeners.add(overrideTopic.addListener(String.class, (channel, name) ->
+                overrideMap().getAsync(name).whenComplete((value, ex) -> {
+                    if (ex != null) {
+                        logger.warn("读取限流覆盖配置失败,流控器名:{}", name, ex);
+                        return;
+                    }
+                    applyRateOverride(name, value);
+                })));
+        overrideListeners.add(overrideTopic.addListener(new BaseStatusListener() {
+            @Override
+            public void onSubscribe(String channel) {
+                overrideMap().readAllMapAsync().whenComplete((values, ex) -> {
+                    if (ex != null) {
+                        logger.warn("加载限流覆盖配置失败,key:{}", overrideKey, ex);
+                        return;
+                    }
+                    applyRateOverrides(values);
+                });
+            }
+        }));
+    }
+
+    private RMap<String, String> overrideMap() {
+        return redissonClient.getMap(overrideKey, StringCodec.INSTANCE);
+    }
+
+    private void applyRateOverrides(Map<String, String> values) {
+        for (String name : rateOverrides.keySet()) {
+            if (!values.containsKey(name)) {
+                applyRateOverride(name, null);
+            }
+        }
+        values.forEach(this::applyRateOverride);
+    }
+
+    /**
+     * 更新覆盖配置并替换已登记的限流器 新的限流器在下次获取时按新配置创建，Redis中的令牌状态不重置
+     *
+     * @param value 令牌数/时间间隔毫秒 为null时恢复注解配置
+     */
+    private void applyRateOverride(String name, String value) {
+        RateOverride override;
+        try {
+            override = value == null ? null : RateOverride.parse(value);
+        } catch (RuntimeException e) {
+            logger.warn("限流覆盖配置格式错误,流控器名:{},配置:{}", name, value, e);
+            return;
+        }
+        RateOverride previous = override == null ? rateOverrides.remove(name) : rateOverrides.put(name, override);
+        if (Objects.equals(previous, override)) {
+            return;
+        }
+        RateLimiterEngine engine = limiterMap.get(name);
+        if (engine != null) {
+            retiredLimiters.put(name, engine);
+            if (limiterMap.remove(name, engine)) {
+                engine.release();
+            }
+        }
+        logger.info("限流器配置已更新,流控器名:{},配置:{}", name, override == null ? "注解配置" : override.format());
+    }
+
+    private void startHotKeyDetection() {
+        if (hotKeyThreshold > 0) {
+            hotKeySketch = new HotKeySketch(hotKeyThreshold * HOT_KEY_DETECT_MILLIS / 1000, HOT_KEY_CAPACITY);
+            hotKeyDetector = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("limiter-hotkey-%d").setDaemon(true).build());
+            hotKeyDetector.scheduleWithFixedDelay(this::detectHotKeys, HOT_KEY_DETECT_MILLIS, HOT_KEY_DETECT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 按上个周期内的估计获取次数检测热点 只处理sketch中的候选与已切换的限流器，不遍历注册表
+     * 超过阈值的限流器切换为租约模式，批量租用令牌在本地发放，同一个令牌桶的Redis访问从每个请求一次降为每个租约周期一次；
+     * 租约与逐次获取使用同一份Redis数据，切换时令牌状态不变，各节点可以各自切换；自动切换的限流器请求量低于阈值一半时切换回来
+     * 切换在限流器内部进行，注册表中的对象不变，调用方持有的句柄同样随之切换
+     */
+    private void detectHotKeys() {
+        long now = System.nanoTime();
+        long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(now - lastDetectNanos));
+        lastDetectNanos = now;
+        try {
+            for (Map.Entry<RedissonRateLimiterEngine, Long> entry : hotKeySketch.drain(promotedLimiters).entrySet()) {
+                RedissonRateLimiterEngine engine = entry.getKey();
+                long perSecond = entry.getValue() * 1000 / elapsedMillis;
+                if (promotedLimiters.contains(engine)) {
+                    if (perSecond < hotKeyThreshold / 2) {
+                        demote(engine, perSecond);
+                    }
+                } else if (perSecond >= hotKeyThreshold && !engine.isLeased()) {
+                    promote(engine, perSecond);
                 }
-                redisTemplate = entry.getValue();
             }
-            if (Objects.isNull(redisTemplate)){
-                Jedis jedis = applicationContext.getBean(Jedis.class);
-                jedis.getDB();
-                Client client = jedis.getClient();
+        } catch (RuntimeException e) {
+            logger.warn("热点限流器检测失败", e);
+        }
+    }
+
+    private void promote(RedissonRateLimiterEngine engine, long perSecond) {
+        String name = engine.getRateLimiter().getName();
+        // 已被淘汰或替换的限流器不再切换
+        if (limiterMap.get(name) != engine) {
+            return;
+        }
+        engine.startLease(new LeasedRateLimiterEngine(engine.getRateLimiter(), script, engine.getConfig(),
+                leaseMillis, denyCache, leaseLatency, scheduler));
+        promotedLimiters.add(engine);
+        logger.info("热点限流器切换为租约模式,流控器名:{},每秒请求:{}", name, perSecond);
+    }
+
+    private void demote(RedissonRateLimiterEngine engine, long perSecond) {
+        promotedLimiters.remove(engine);
+        // 归还未使用的租约令牌
+        engine.stopLease();
+        logger.info("限流器访问回落,退出租约模式,流控器名:{},每秒请求:{}", engine.getRateLimiter().getName(), perSecond);
+    }
+
+    /**
+     * PER_CLIENT限流器只对本实例生效，直接在进程内计数
+     * OVERALL令牌桶开启租约时批量从Redis租用令牌在本地发放，其余算法不支持租约
+     * 自适应并发限流器始终在进程内计数，OVERALL时定期与其他节点同步并发上限
+     */
+    private RateLimiterEngine createEngine(RateLimiterConfig config, RateAlgorithm algorithm, boolean lease, RRateLimiter rateLimiter) {
+        if (algorithm == RateAlgorithm.ADAPTIVE) {
+            return new AdaptiveConcurrencyLimiter(config, rateLimiter,
+                    config.getRateType() == RateType.OVERALL ? script : null,
+                    AlgorithmScripts.key(rateLimiter.getName(), "adaptive"), scheduler);
+        }
+        if (algorithm == RateAlgorithm.TOKEN_BUCKET) {
+            return createTokenBucket(config, lease, rateLimiter);
+        }
+        long rate = config.getRate();
+        long intervalMillis = config.getRateInterval();
+        if (config.getRateType() == RateType.PER_CLIENT) {
+            switch (algorithm) {
+                case GCRA:
+                    return new LocalGcra(rate, intervalMillis, rate, rateLimiter, config, scheduler);
+                case LEAKY_BUCKET:
+                    return new LocalGcra(rate, intervalMillis, 1, rateLimiter, config, scheduler);
+                case SLIDING_WINDOW:
+                    return new LocalSlidingWindow(rate, intervalMillis, rateLimiter, config, scheduler);
+                default:
+                    if (LocalFixedWindow.supports(rate)) {
+                        return new LocalFixedWindow(rate, intervalMillis, rateLimiter, config, scheduler);
+                    }
+                    // 缩短窗口会改变窗口边界 保持时间间隔不变，每个窗口最多放行计数上限
+                    logger.warn("PER_CLIENT固定窗口令牌数超过计数上限,每{}ms最多放行{}个,流控器名:{}",
+                            intervalMillis, LocalFixedWindow.MAX_COUNT, rateLimiter.getName());
+                    return new LocalFixedWindow(LocalFixedWindow.MAX_COUNT, intervalMillis, rateLimiter, config, scheduler);
+            }
+        }
+        String name = rateLimiter.getName();
+        switch (algorithm) {
+            case GCRA:
+                return new ScriptRateLimiterEngine(rateLimiter, script, AlgorithmScripts.key(name, "gcra"),
+                        AlgorithmScripts.GCRA, AlgorithmScripts.GCRA_REFUND, config, rate, denyCache, acquireLatency, scheduler);
+            case LEAKY_BUCKET:
+                return new ScriptRateLimiterEngine(rateLimiter, script, AlgorithmScripts.key(name, "gcra"),
+                        AlgorithmScripts.GCRA, AlgorithmScripts.GCRA_REFUND, config, 1, denyCache, acquireLatency, scheduler);
+            case SLIDING_WINDOW:
+                return new ScriptRateLimiterEngine(rateLimiter, script, AlgorithmScripts.key(name, "sliding"),
+                        AlgorithmScripts.SLIDING_WINDOW, AlgorithmScripts.SLIDING_WINDOW_REFUND, config, rate, denyCache, acquireLatency, scheduler);
+            default:
+                return new ScriptRateLimiterEngine(rateLimiter, script, AlgorithmScripts.key(name, "fixed"),
+                        AlgorithmScripts.FIXED_WINDOW, AlgorithmScripts.FIXED_WINDOW_REFUND, config, rate, denyCache, acquireLatency, scheduler);
+        }
+    }
+
+    /**
+     * PER_CLIENT令牌桶在进程内计数，Redis仅保存配置
+     */
+    private RateLimiterEngine createTokenBucket(RateLimiterConfig config, boolean lease, RRateLimiter rateLimiter) {
+        long rate = config.getRate();
+        long intervalMillis = config.getRateInterval();
+        if (config.getRateType() == RateType.PER_CLIENT) {
+            // 配置仅供查看 异步写入且不覆盖已有配置，只在新写入时设置过期时间
+            rateLimiter.trySetRateAsync(RateType.PER_CLIENT, rate, intervalMillis, RateIntervalUnit.MILLISECONDS)
+                    .thenAccept(created -> {
+                        if (created) {
+                            rateLimiter.expireAsync(Duration.ofMillis(registryExpireMillis));
+                        }
+                    });
+            if (LocalTokenBucket.supports(rate)) {
+                return new LocalTokenBucket(rate, intervalMillis, rateLimiter, config, scheduler);
             }
+            // 超出本地令牌桶容量时按比例缩短时间间隔 保持速率不变，单次获取的令牌数不能超过容量
+            logger.warn("PER_CLIENT令牌桶令牌数超过本地容量上限,按{}个/{}ms计算,单次最多获取{}个,流控器名:{}",
+                    LocalTokenBucket.MAX_TOKENS, Math.max(1, intervalMillis * LocalTokenBucket.MAX_TOKENS / rate),
+                    LocalTokenBucket.MAX_TOKENS, rateLimiter.getName());
+            return new LocalTokenBucket(LocalTokenBucket.MAX_TOKENS,
+                    Math.max(1, intervalMillis * LocalTokenBucket.MAX_TOKENS / rate), rateLimiter, config, scheduler);
         }
-    }*/
+        if (lease) {
+            return new LeasedRateLimiterEngine(rateLimiter, script, config, leaseMillis, denyCache, leaseLatency, scheduler);
+        }
+        return new RedissonRateLimiterEngine(rateLimiter, script, config, denyCache, acquireLatency, hotKeySketch, scheduler);
+    }
+
+    /**
+     * 登记限流器时的参数 覆盖配置在创建时另行应用
+     */
+    private static final class Registration {
+
+        private final RateLimiterConfig config;
+
+        private final RateAlgorithm algorithm;
+
+        private final boolean lease;
+
+        private Registration(RateLimiterConfig config, RateAlgorithm algorithm, boolean lease) {
+            this.config = config;
+            this.algorithm = algorithm;
+            this.lease = lease;
+        }
+    }
 }
@@ -0,0 +1,153 @@
+package limiter.api.impl;
+
+import limiter.metrics.LatencyRecorder;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RScript;
+import org.redisson.api.RateLimiterConfig;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 基于Redisson RRateLimiter数据结构的分布式令牌桶
+ * 获取失败时由Lua脚本直接返回下次释放令牌的时间，等待中的获取据此唤醒，不再反复轮询Redis
+ * 配置随首次获取在同一个脚本中创建，不需要单独初始化
+ * 令牌不足后直到下次释放令牌前的获取直接在本地拒绝，见{@link DenyCache}
+ * 被检测为热点时在内部切换为租约模式，已持有的句柄同样生效
+ *
+ * @author kana
+ * @date 2026/10/18 13:45
+ */
+
+class RedissonRateLimiterEngine extends DelayedRateLimiterEngine {
+
+    private final RRateLimiter rateLimiter;
+
+    private final RScript script;
+
+    private final List<Object> keys;
+
+    private final RateLimiterConfig config;
+
+    private final DenyCache denyCache;
+
+    private final LatencyRecorder latency;
+
+    /**
+     * 热点统计 为null时不检测
+     */
+    private final HotKeySketch sketch;
+
+    /**
+     * 热点期间使用的租约 为null时逐次访问Redis
+     */
+    private volatile LeasedRateLimiterEngine lease;
+
+    RedissonRateLimiterEngine(RRateLimiter rateLimiter, RScript script, RateLimiterConfig config, boolean denyCache,
+                              LatencyRecorder latency, HotKeySketch sketch, ScheduledExecutorService scheduler) {
+        super(scheduler);
+        this.rateLimiter = rateLimiter;
+        this.script = script;
+        this.keys = RateLimiterScripts.keys(rateLimiter.getName());
+        this.config = config;
+        this.denyCache = new DenyCache(denyCache, config.getRate());
+        this.latency = latency;
+        this.sketch = sketch;
+    }
+
+    @Override
+    long tryAcquireOrDelay(long permits) {
+        return join(tryAcquireOrDelayAsync(permits));
+    }
+
+    @Override
+    CompletionStage<Long> tryAcquireOrDelayAsync(long permits) {
+        LeasedRateLimiterEngine current = lease;
+        if (current != null) {
+            record();
+            return current.tryAcquireOrDelayAsync(permits);
+        }
+        long denied = denyCache.remaining(permits);
+        if (denied > 0) {
+            return CompletableFuture.completedFuture(denied);
+        }
+        record();
+        long start = System.nanoTime();
+        CompletionStage<Long> result = script.evalAsync(RScript.Mode.READ_WRITE, RateLimiterScripts.TRY_ACQUIRE, RScript.ReturnType.INTEGER,
+                keys, RateLimiterScripts.args(config, permits, Long.toHexString(ThreadLocalRandom.current().nextLong())));
+        return result.thenApply(millis -> {
+            latency.record(System.nanoTime() - start);
+            long delay = millis == null ? 0L : Math.max(1L, millis);
+            denyCache.update(permits, delay);
+            return delay;
+        });
+    }
+
+    @Override
+    public RRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    List<Object> getKeys() {
+        return keys;
+    }
+
+    @Override
+    public RateLimiterConfig getConfig() {
+        return config;
+    }
+
+    DenyCache getDenyCache() {
+        return denyCache;
+    }
+
+    /**
+     * 等待者在获取过程中超时后异步归还 不等待结果；租约模式下退回本地租约
+     */
+    @Override
+    public void refund(long permits) {
+        LeasedRateLimiterEngine current = lease;
+        if (current != null) {
+            current.refund(permits);
+            return;
+        }
+        denyCache.clear();
+        script.evalAsync(RScript.Mode.READ_WRITE, RateLimiterScripts.REFUND, RScript.ReturnType.INTEGER, keys, permits);
+    }
+
+    @Override
+    public CompletionStage<Void> release() {
+        LeasedRateLimiterEngine current = lease;
+        lease = null;
+        return current == null ? CompletableFuture.completedFuture(null) : current.release();
+    }
+
+    private void record() {
+        if (sketch != null) {
+            sketch.add(this);
+        }
+    }
+
+    boolean isLeased() {
+        return lease != null;
+    }
+
+    /**
+     * 切换为租约模式 同一时刻只由热点检测线程调用
+     *
+     * @param leased 使用同一份Redis数据的租约限流器
+     */
+    void startLease(LeasedRateLimiterEngine leased) {
+        lease = leased;
+    }
+
+    /**
+     * 退出租约模式 并归还未使用的租约令牌
+     */
+    void stopLease() {
+        release();
+    }
+}
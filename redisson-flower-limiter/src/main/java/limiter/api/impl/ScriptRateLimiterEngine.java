@@ -0,0 +1,122 @@
+package limiter.api.impl;
+
+import limiter.metrics.LatencyRecorder;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RScript;
+import org.redisson.api.RateLimiterConfig;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * 基于单key Lua脚本的分布式限流器 用于GCRA、漏桶、滑动窗口与固定窗口
+ * 脚本约定见{@link AlgorithmScripts}，获取失败时同样返回等待时间，等待中的获取据此唤醒，此前的获取直接在本地拒绝
+ *
+ * @author kana
+ * @date 2026/10/18 20:40
+ */
+
+class ScriptRateLimiterEngine extends DelayedRateLimiterEngine {
+
+    private final RRateLimiter rateLimiter;
+
+    private final RateLimiterConfig config;
+
+    private final RScript script;
+
+    private final List<Object> keys;
+
+    private final String acquireScript;
+
+    private final String refundScript;
+
+    private final long rate;
+
+    private final long intervalMillis;
+
+    /**
+     * 允许的突发令牌数 仅GCRA使用
+     */
+    private final long burst;
+
+    private final DenyCache denyCache;
+
+    private final LatencyRecorder latency;
+
+    /**
+     * @param rateLimiter   同名的Redisson限流器 只用于提供名称
+     * @param script        执行脚本的RScript
+     * @param key           限流器状态key
+     * @param acquireScript 获取脚本
+     * @param refundScript  归还脚本
+     * @param config        限流器配置
+     * @param burst         允许的突发令牌数
+     * @param denyCache     是否开启本地拒绝缓存
+     * @param latency       Redis调用耗时记录器
+     * @param scheduler     等待令牌时的唤醒定时器
+     */
+    ScriptRateLimiterEngine(RRateLimiter rateLimiter, RScript script, String key, String acquireScript, String refundScript,
+                            RateLimiterConfig config, long burst, boolean denyCache, LatencyRecorder latency,
+                            ScheduledExecutorService scheduler) {
+        super(scheduler);
+        this.rateLimiter = rateLimiter;
+        this.config = config;
+        this.script = script;
+        this.keys = Collections.singletonList(key);
+        this.acquireScript = acquireScript;
+        this.refundScript = refundScript;
+        this.rate = config.getRate();
+        this.intervalMillis = config.getRateInterval();
+        this.burst = burst;
+        this.denyCache = new DenyCache(denyCache, rate);
+        this.latency = latency;
+    }
+
+    @Override
+    long tryAcquireOrDelay(long permits) {
+        return join(tryAcquireOrDelayAsync(permits));
+    }
+
+    @Override
+    CompletionStage<Long> tryAcquireOrDelayAsync(long permits) {
+        long denied = denyCache.remaining(permits);
+        if (denied > 0) {
+            return CompletableFuture.completedFuture(denied);
+        }
+        long start = System.nanoTime();
+        CompletionStage<Long> result = script.evalAsync(RScript.Mode.READ_WRITE, acquireScript, RScript.ReturnType.INTEGER,
+                keys, args(permits));
+        return result.thenApply(millis -> {
+            latency.record(System.nanoTime() - start);
+            long delay = millis == null ? 0L : millis;
+            denyCache.update(permits, delay);
+            return delay;
+        });
+    }
+
+    /**
+     * 多个限流器同时获取失败时异步归还 不等待结果
+     */
+    @Override
+    public void refund(long permits) {
+        denyCache.clear();
+        script.evalAsync(RScript.Mode.READ_WRITE, refundScript, RScript.ReturnType.STATUS, keys, args(permits));
+    }
+
+    @Override
+    public RateLimiterConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public RRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    private Object[] args(long permits) {
+        return new Object[]{rate, intervalMillis, System.currentTimeMillis(), permits, burst};
+    }
+}
@@ -1,24 +1,30 @@
 package limiter.aspect;
 
-import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import com.google.common.collect.Maps;
 import limiter.annotation.Limiter;
-import limiter.exception.ParamException;
+import limiter.metrics.LimiterMetrics;
 import limiter.util.MethodUtil;
-import limiter.util.ReflectionsUtil;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.redisson.api.RateIntervalUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.beans.factory.config.SingletonBeanRegistry;
 import org.springframework.context.ApplicationContext;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
 
 /**
  * 抽离一些通用的方法
@@ -31,16 +37,30 @@ public abstract class AbstractLimiterAspectSupport {
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractLimiterAspectSupport.class);
 
-    private static final Map<String, Method> FALLBACK_MAP = Maps.newConcurrentMap();
-
     private static final Map<RateIntervalUnit, String> RATE_INTERVAL_UNIT_STRING_MAP = Maps.newHashMap();
 
     private static final String FLOWER_ERROR_INFO_TEMPLATE = "流控异常,流控的方法:{},流控器名:{},流控量级:每{}{}生成{}个令牌,流控降级执行的方法:{}";
 
     private static final String FLOWER_WARN_INFO_TEMPLATE = "流控阻塞,流控的方法:{},流控器名:{},流控量级:每{}{}生成{}个令牌,流控降级执行的方法:{}";
 
+    protected static final long DEFAULT_DENY_LOG_INTERVAL_SECONDS = 10L;
+
     private ApplicationContext applicationContext;
 
+    private final LimiterMetrics limiterMetrics;
+
+    private final DenyLogReporter denyLogReporter;
+
+    /**
+     * 执行计划缓存 先按目标类再按签名方法定位，命中时不产生任何反射调用
+     */
+    private final ClassValue<Map<Method, LimiterPlan[]>> planCache = new ClassValue<Map<Method, LimiterPlan[]>>() {
+        @Override
+        protected Map<Method, LimiterPlan[]> computeValue(Class<?> type) {
+            return Maps.newConcurrentMap();
+        }
+    };
+
     static {
         RATE_INTERVAL_UNIT_STRING_MAP.put(RateIntervalUnit.MILLISECONDS, "毫秒");
         RATE_INTERVAL_UNIT_STRING_MAP.put(RateIntervalUnit.SECONDS, "秒");
@@ -50,43 +70,183 @@ public abstract class AbstractLimiterAspectSupport {
     }
 
     public AbstractLimiterAspectSupport(ApplicationContext applicationContext) {
+        this(applicationContext, LimiterMetrics.NOOP, DEFAULT_DENY_LOG_INTERVAL_SECONDS);
+    }
+
+    /**
+     * @param applicationContext      容器
+     * @param limiterMetrics          限流指标
+     * @param denyLogIntervalSeconds  流控阻塞日志的汇总周期 秒
+     */
+    public AbstractLimiterAspectSupport(ApplicationContext applicationContext, LimiterMetrics limiterMetrics, long denyLogIntervalSeconds) {
         this.applicationContext = applicationContext;
+        this.limiterMetrics = limiterMetrics;
+        this.denyLogReporter = new DenyLogReporter(denyLogIntervalSeconds);
     }
 
-    protected Object handleFallback(ProceedingJoinPoint pjp, Limiter annotation, Throwable ex) {
-        return handleFallback(pjp, annotation.fallback(), annotation.fallbackClass(), ex);
+    /**
+     * 获取切点对应的执行计划 首次调用时解析并缓存
+     *
+     * @param pjp 切点
+     * @return 执行计划 方法上每个流控注解对应一个
+     */
+    protected LimiterPlan[] getLimiterPlans(ProceedingJoinPoint pjp) {
+        Method signatureMethod = ((MethodSignature) pjp.getSignature()).getMethod();
+        Class<?> targetClass = pjp.getTarget().getClass();
+        Map<Method, LimiterPlan[]> plans = planCache.get(targetClass);
+        LimiterPlan[] plan = plans.get(signatureMethod);
+        if (plan == null) {
+            Method originMethod = resolveMethod(pjp);
+            plan = cachePlans(plans, signatureMethod, buildLimiterPlans(targetClass, originMethod));
+        }
+        return plan;
     }
 
-    protected Object handleFallback(ProceedingJoinPoint pjp, String fallback,
-                                    Class<?>[] fallbackClass, Throwable ex) {
-        Object[] originArgs = pjp.getArgs();
-        Object target = pjp.getTarget();
-        // Execute fallback function if configured.
-        Method fallbackMethod = extractFallbackMethod(pjp, fallback, fallbackClass);
-        if (fallbackMethod != null) {
-            target = applicationContext.getBean(fallbackClass[0]);
-            // Construct args.
-            int paramCount = fallbackMethod.getParameterTypes().length;
-            Object[] args;
-            if (paramCount == originArgs.length) {
-                args = originArgs;
-            } else {
-                args = Arrays.copyOf(originArgs, originArgs.length + 1);
-                args[args.length - 1] = ex;
+    /**
+     * 启动时扫描容器中已创建的单例 为所有流控方法预先生成执行计划并校验降级方法
+     * 计划同时登记在实现类方法与其接口方法上，CGLIB与JDK代理的切点都能直接命中
+     *
+     * @return 预先生成的执行计划
+     * @throws IllegalStateException 降级方法不存在、签名不匹配或降级类不在容器中
+     */
+    protected List<LimiterPlan> preloadLimiterPlans() {
+        List<LimiterPlan> preloaded = new ArrayList<>();
+        AutowireCapableBeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
+        if (!(beanFactory instanceof SingletonBeanRegistry)) {
+            return preloaded;
+        }
+        SingletonBeanRegistry registry = (SingletonBeanRegistry) beanFactory;
+        Set<Class<?>> scanned = new HashSet<>();
+        for (String beanName : applicationContext.getBeanNamesForType(Object.class, false, false)) {
+            Object bean = registry.getSingleton(beanName);
+            if (bean == null) {
+                continue;
+            }
+            Class<?> targetClass = AopUtils.getTargetClass(bean);
+            if (!scanned.add(targetClass)) {
+                continue;
+            }
+            for (Method method : ReflectionUtils.getUniqueDeclaredMethods(ClassUtils.getUserClass(targetClass))) {
+                if (method.getAnnotationsByType(Limiter.class).length == 0) {
+                    continue;
+                }
+                Map<Method, LimiterPlan[]> plans = planCache.get(targetClass);
+                LimiterPlan[] plan = cachePlans(plans, method, buildLimiterPlans(targetClass, method));
+                for (Class<?> itf : ClassUtils.getAllInterfacesForClassAsSet(targetClass)) {
+                    Method interfaceMethod = ReflectionUtils.findMethod(itf, method.getName(), method.getParameterTypes());
+                    if (interfaceMethod != null) {
+                        plans.putIfAbsent(interfaceMethod, plan);
+                    }
+                }
+                for (LimiterPlan limiterPlan : plan) {
+                    validateFallback(limiterPlan);
+                    preloaded.add(limiterPlan);
+                }
             }
-            return ReflectUtil.invoke(target, fallbackMethod, args);
         }
-        return null;
+        return preloaded;
+    }
+
+    /**
+     * 并发生成时只保留先写入的计划 并登记其流控日志
+     */
+    private LimiterPlan[] cachePlans(Map<Method, LimiterPlan[]> plans, Method method, LimiterPlan[] plan) {
+        LimiterPlan[] previous = plans.putIfAbsent(method, plan);
+        if (previous != null) {
+            return previous;
+        }
+        for (LimiterPlan limiterPlan : plan) {
+            denyLogReporter.register(limiterPlan.getDenyLog());
+        }
+        return plan;
+    }
+
+    private LimiterPlan[] buildLimiterPlans(Class<?> targetClass, Method originMethod) {
+        Limiter[] annotations = originMethod.getAnnotationsByType(Limiter.class);
+        if (annotations.length == 0) {
+            throw new IllegalStateException("注解状态异常");
+        }
+        LimiterPlan[] plans = new LimiterPlan[annotations.length];
+        for (int i = 0; i < annotations.length; i++) {
+            plans[i] = buildLimiterPlan(targetClass, originMethod, annotations[i]);
+        }
+        return plans;
+    }
+
+    private LimiterPlan buildLimiterPlan(Class<?> targetClass, Method originMethod, Limiter annotation) {
+        String[] parameters = annotation.args();
+        ArgumentExtractor[] extractors = new ArgumentExtractor[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            extractors[i] = ArgumentExtractor.compile(parameters[i]);
+        }
+        Class<?>[] fallbackClass = annotation.fallbackClass();
+        boolean hasLoadingClass = fallbackClass != null && fallbackClass.length >= 1;
+        Class<?> fallbackLocation = hasLoadingClass ? fallbackClass[0] : targetClass;
+        Method fallbackMethod = StrUtil.isBlank(annotation.fallback())
+                ? null : resolveFallbackInternal(originMethod, annotation.fallback(), fallbackLocation);
+        String fallbackMethodName = fallbackMethod == null ? StrUtil.EMPTY : MethodUtil.resolveMethodName(fallbackMethod);
+        String resourceName = getResourceName(annotation.value(), originMethod);
+        return new LimiterPlan(originMethod, annotation, MethodUtil.resolveMethodName(originMethod),
+                resourceName, extractors, fallbackMethod, hasLoadingClass ? fallbackClass[0] : null, fallbackMethodName,
+                limiterMetrics.resource(resourceName));
+    }
+
+    /**
+     * 校验降级配置 降级方法需与流控方法参数一致(或多一个Throwable参数)且返回值兼容，降级类需在容器中
+     */
+    private void validateFallback(LimiterPlan plan) {
+        Limiter annotation = plan.getLimiter();
+        if (StrUtil.isBlank(annotation.fallback())) {
+            return;
+        }
+        if (plan.getFallbackMethod() == null) {
+            throw new IllegalStateException(StrUtil.format("降级方法不存在或签名不匹配,流控的方法:{},降级方法:{},降级类:{}",
+                    plan.getMethodName(), annotation.fallback(), Arrays.toString(annotation.fallbackClass())));
+        }
+        if (plan.getFallbackClass() != null && applicationContext.getBeanNamesForType(plan.getFallbackClass()).length == 0) {
+            throw new IllegalStateException(StrUtil.format("降级类不在容器中,流控的方法:{},降级类:{}",
+                    plan.getMethodName(), plan.getFallbackClass().getName()));
+        }
     }
 
-    protected String getFallbackMethodName(ProceedingJoinPoint pjp, String fallback, Class<?>[] fallbackClass) {
-        Method fallbackMethod = extractFallbackMethod(pjp, fallback, fallbackClass);
-        if (Objects.isNull(fallbackMethod)) {
-            return StrUtil.EMPTY;
+    /**
+     * 停止流控日志汇总 输出剩余计数
+     */
+    protected void closeDenyLog() {
+        denyLogReporter.close();
+    }
+
+    protected Object handleFallback(ProceedingJoinPoint pjp, LimiterPlan plan, Throwable ex) {
+        // Execute fallback function if configured.
+        if (plan.getFallbackMethod() == null) {
+            return null;
+        }
+        Object target = plan.getFallbackClass() == null ? pjp.getTarget() : getFallbackBean(plan);
+        try {
+            return plan.invokeFallback(target, pjp.getArgs(), ex);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new UndeclaredThrowableException(e);
         }
-        return MethodUtil.resolveMethodName(fallbackMethod);
     }
 
+    /**
+     * 降级类为单例时缓存实例 之后不再查找容器
+     */
+    private Object getFallbackBean(LimiterPlan plan) {
+        Object bean = plan.getFallbackBean();
+        if (bean != null) {
+            return bean;
+        }
+        Class<?> fallbackClass = plan.getFallbackClass();
+        bean = applicationContext.getBean(fallbackClass);
+        String[] beanNames = applicationContext.getBeanNamesForType(fallbackClass);
+        if (beanNames.length == 1 && applicationContext.isSingleton(beanNames[0])) {
+            plan.setFallbackBean(bean);
+        }
+        return bean;
+    }
 
     protected Method resolveMethod(ProceedingJoinPoint joinPoint) {
         MethodSignature signature = (MethodSignature) joinPoint.getSignature();
@@ -100,21 +260,6 @@ public abstract class AbstractLimiterAspectSupport {
         return method;
     }
 
-    protected String getResourceNameWrapperArgs(Limiter limiter, /*@NonNull*/ Method method, ProceedingJoinPoint pjp) {
-        Object[] realArgs = pjp.getArgs();
-        String resourceName = getResourceName(limiter.value(), method);
-        String[] parameters = limiter.args();
-        if (parameters != null && parameters.length > 0) {
-            StringBuilder builder = new StringBuilder(resourceName);
-            for (String parameter : parameters) {
-                Object keyValue = getKeyValue(parameter, realArgs);
-                builder.append(keyValue);
-            }
-            resourceName = builder.toString();
-        }
-        return resourceName;
-    }
-
     protected String getResourceName(String resourceName, /*@NonNull*/ Method method) {
         // If resource name is present in annotation, use this value.
         if (StrUtil.isNotBlank(resourceName)) {
@@ -132,33 +277,7 @@ public abstract class AbstractLimiterAspectSupport {
         return StrUtil.format(FLOWER_WARN_INFO_TEMPLATE, methodName, resourceName, limiter.rateInterval(), RATE_INTERVAL_UNIT_STRING_MAP.get(limiter.rateIntervalUnit()), limiter.rate(), fallbackMethodName);
     }
 
-    private Method extractFallbackMethod(ProceedingJoinPoint pjp, String fallbackName, Class<?>[] locationClass) {
-        if (StrUtil.isBlank(fallbackName)) {
-            return null;
-        }
-        boolean hasLoadingClass = locationClass != null && locationClass.length >= 1;
-        Class<?> clazz = hasLoadingClass ? locationClass[0] : pjp.getTarget().getClass();
-        String methodKey = getKey(clazz, fallbackName);
-        Method m = FALLBACK_MAP.get(methodKey);
-        if (m == null) {
-            // First time, resolve the fallback.
-            Method method = resolveFallbackInternal(pjp, fallbackName, clazz);
-            if (method == null) {
-                return null;
-            }
-            // Cache the method instance.
-            FALLBACK_MAP.put(getKey(clazz, fallbackName), method);
-            return method;
-        }
-        return m;
-    }
-
-    private static String getKey(Class<?> clazz, String name) {
-        return String.format("%s:%s", clazz.getCanonicalName(), name);
-    }
-
-    private Method resolveFallbackInternal(ProceedingJoinPoint pjp, /*@NonNull*/ String name, Class<?> clazz) {
-        Method originMethod = resolveMethod(pjp);
+    private Method resolveFallbackInternal(Method originMethod, /*@NonNull*/ String name, Class<?> clazz) {
         // Fallback function allows two kinds of parameter list.
         Class<?>[] defaultParamTypes = originMethod.getParameterTypes();
         Class<?>[] paramTypesWithException = Arrays.copyOf(defaultParamTypes, defaultParamTypes.length + 1);
@@ -214,41 +333,4 @@ public abstract class AbstractLimiterAspectSupport {
         return null;
     }
 
-    /**
-     * @param paramKey #p? or #p?.propertyName
-     * @param args
-     * @return
-     */
-    private static Object getKeyValue(String paramKey, Object[] args) {
-        try {
-            Object arg;
-            if (paramKey.contains(".")) {
-                String position = paramKey.split("\\.")[0];
-                int argsIndex = Integer.parseInt(position.replace("#p", ""));
-                String propertyName = paramKey.split("\\.")[1];
-                arg = args[argsIndex];
-                if (arg instanceof List) {
-                    arg = ReflectionsUtil.getFieldValue(((List) arg).get(0), propertyName);
-                } else if (arg instanceof String[]) {
-                    arg = ReflectionsUtil.getFieldValue(((String[]) arg)[0], propertyName);
-                } else {
-                    arg = ReflectionsUtil.invokeGetter(args[argsIndex], propertyName);
-                }
-            } else {
-                int argsIndex = Integer.parseInt(paramKey.replace("#p", ""));
-                arg = args[argsIndex];
-            }
-            //list 获取第一个元素
-            if (arg instanceof List) {
-                return ((List) arg).get(0);
-            }
-            if (arg instanceof String[]) {
-                return ((String[]) arg)[0];
-            }
-            return arg;
-        } catch (Exception e) {
-            throw new ParamException(paramKey, e.getMessage());
-        }
-    }
-
 }
@@ -0,0 +1,113 @@
+package limiter.aspect;
+
+import limiter.exception.ParamException;
+import limiter.util.PropertyAccessor;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预解析的入参提取器 对应注解args中的一个表达式(#p0、#p0.propertyName 或 #p0.user.tenantId)，或permitsExpression(#p0.size())
+ * 属性路径在生成执行计划时编译为{@link PropertyAccessor}链，调用时不再拆分字符串与反射
+ *
+ * @author kana
+ * @date 2026/10/18 10:20
+ */
+
+final class ArgumentExtractor {
+
+    private static final String PARAM_PREFIX = "#p";
+
+    private final String expression;
+
+    private final int index;
+
+    private final PropertyAccessor[] accessors;
+
+    private ArgumentExtractor(String expression, int index, PropertyAccessor[] accessors) {
+        this.expression = expression;
+        this.index = index;
+        this.accessors = accessors;
+    }
+
+    /**
+     * 解析表达式 只在生成执行计划时调用一次
+     *
+     * @param expression #p? or #p?.propertyName[.propertyName...]
+     * @return 提取器
+     */
+    static ArgumentExtractor compile(String expression) {
+        try {
+            String[] segments = expression.split("\\.");
+            if (!segments[0].startsWith(PARAM_PREFIX)) {
+                throw new IllegalArgumentException("表达式需以" + PARAM_PREFIX + "开头");
+            }
+            int index = Integer.parseInt(segments[0].substring(PARAM_PREFIX.length()));
+            PropertyAccessor[] accessors = new PropertyAccessor[segments.length - 1];
+            for (int i = 1; i < segments.length; i++) {
+                accessors[i - 1] = PropertyAccessor.of(segments[i]);
+            }
+            return new ArgumentExtractor(expression, index, accessors);
+        } catch (Exception e) {
+            throw new ParamException(expression, e.getMessage());
+        }
+    }
+
+    Object extract(Object[] args) {
+        try {
+            Object arg = args[index];
+            for (PropertyAccessor accessor : accessors) {
+                arg = accessor.get(first(arg));
+            }
+            return first(arg);
+        } catch (Throwable e) {
+            throw new ParamException(expression, e.getMessage());
+        }
+    }
+
+    /**
+     * 按表达式结果计算令牌数 数字取整数值，集合、Map与数组取元素个数，中间结果不取第一个元素
+     *
+     * @param args 入参
+     * @return 令牌数 可能小于1
+     */
+    long extractPermits(Object[] args) {
+        Object value;
+        try {
+            value = args[index];
+            for (PropertyAccessor accessor : accessors) {
+                value = accessor.get(value);
+            }
+        } catch (Throwable e) {
+            throw new ParamException(expression, e.getMessage());
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).size();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).size();
+        }
+        if (value != null && value.getClass().isArray()) {
+            return Array.getLength(value);
+        }
+        throw new ParamException(expression, "无法转换为令牌数: " + value);
+    }
+
+    /**
+     * list 与 String[] 取第一个元素
+     */
+    private static Object first(Object arg) {
+        if (arg instanceof List) {
+            return ((List) arg).get(0);
+        }
+        if (arg instanceof String[]) {
+            return ((String[]) arg)[0];
+        }
+        return arg;
+    }
+}
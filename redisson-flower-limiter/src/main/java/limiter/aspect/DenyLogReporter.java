@@ -0,0 +1,79 @@
+package limiter.aspect;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 流控阻塞日志汇总
+ * 请求被流控时只累加计数，由后台线程按固定周期为每个方法输出一行汇总，日志内容在生成执行计划时预先拼好
+ *
+ * @author kana
+ * @date 2026/10/18 19:50
+ */
+
+final class DenyLogReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LimiterAspect.class);
+
+    private final Queue<DenyLog> denyLogs = new ConcurrentLinkedQueue<>();
+
+    private final long intervalSeconds;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("limiter-deny-log-%d").setDaemon(true).build());
+
+    DenyLogReporter(long intervalSeconds) {
+        this.intervalSeconds = intervalSeconds;
+        executor.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 登记执行计划的流控日志
+     */
+    void register(DenyLog denyLog) {
+        denyLogs.add(denyLog);
+    }
+
+    private void report() {
+        for (DenyLog denyLog : denyLogs) {
+            long count = denyLog.count.sumThenReset();
+            if (count > 0 && logger.isWarnEnabled()) {
+                logger.warn("{},{}秒内共{}次", denyLog.message, intervalSeconds, count);
+            }
+        }
+    }
+
+    /**
+     * 输出剩余的计数并停止后台线程
+     */
+    void close() {
+        executor.shutdownNow();
+        report();
+    }
+
+    /**
+     * 单个执行计划的流控计数
+     */
+    static final class DenyLog {
+
+        private final String message;
+
+        private final LongAdder count = new LongAdder();
+
+        DenyLog(String message) {
+            this.message = message;
+        }
+
+        void record() {
+            count.increment();
+        }
+    }
+}
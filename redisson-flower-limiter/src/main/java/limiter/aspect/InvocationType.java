@@ -0,0 +1,52 @@
+package limiter.aspect;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 被流控方法的返回类型 决定切面以同步还是异步方式获取令牌
+ *
+ * @author kana
+ * @date 2026/10/18 15:40
+ */
+
+enum InvocationType {
+
+    /**
+     * 同步返回
+     */
+    SYNC,
+
+    /**
+     * 返回CompletionStage/CompletableFuture
+     */
+    FUTURE,
+
+    /**
+     * 返回Mono
+     */
+    MONO,
+
+    /**
+     * 返回Flux
+     */
+    FLUX;
+
+    static InvocationType of(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (CompletionStage.class.isAssignableFrom(returnType) && returnType.isAssignableFrom(CompletableFuture.class)) {
+            return FUTURE;
+        }
+        if (Mono.class == returnType) {
+            return MONO;
+        }
+        if (Flux.class == returnType) {
+            return FLUX;
+        }
+        return SYNC;
+    }
+}
@@ -1,20 +1,35 @@
 package limiter.aspect;
 
 import cn.hutool.core.util.StrUtil;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import limiter.annotation.Limiter;
+import limiter.api.LimiterHandle;
 import limiter.api.LimiterService;
 import limiter.exception.BlockException;
-import limiter.util.MethodUtil;
+import limiter.metrics.LimiterMetrics;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Pointcut;
-import org.redisson.api.RRateLimiter;
 import org.redisson.client.RedisResponseTimeoutException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.context.ApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
-import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 /**
  * 流控切面
@@ -24,58 +39,516 @@ import java.lang.reflect.Method;
  */
 @Aspect
 @Slf4j
-public class LimiterAspect extends AbstractLimiterAspectSupport {
+public class LimiterAspect extends AbstractLimiterAspectSupport implements SmartInitializingSingleton, DisposableBean {
 
     private LimiterService limiterService;
 
+    /**
+     * 默认的异步执行线程池 未指定asyncExecutor时使用
+     */
+    private final ExecutorService defaultAsyncExecutor = Executors.newCachedThreadPool(
+            new ThreadFactoryBuilder().setNameFormat("limiter-async-%d").setDaemon(true).build());
+
+    /**
+     * 异步获取令牌后执行目标方法的线程池
+     * 令牌获取的回调运行在Redisson的netty线程或限流定时器线程上，目标方法可能阻塞，不能直接在其上执行
+     */
+    private Executor asyncExecutor = defaultAsyncExecutor;
+
+    private Scheduler asyncScheduler = Schedulers.fromExecutor(defaultAsyncExecutor);
+
     public LimiterAspect(LimiterService limiterService, ApplicationContext applicationContext) {
         super(applicationContext);
         this.limiterService = limiterService;
     }
 
-    @Pointcut("@annotation(limiter.annotation.Limiter)")
+    public LimiterAspect(LimiterService limiterService, ApplicationContext applicationContext, LimiterMetrics limiterMetrics) {
+        this(limiterService, applicationContext, limiterMetrics, DEFAULT_DENY_LOG_INTERVAL_SECONDS);
+    }
+
+    public LimiterAspect(LimiterService limiterService, ApplicationContext applicationContext, LimiterMetrics limiterMetrics,
+                         long denyLogIntervalSeconds) {
+        super(applicationContext, limiterMetrics, denyLogIntervalSeconds);
+        this.limiterService = limiterService;
+    }
+
+    /**
+     * 启动时生成所有流控方法的执行计划并校验降级方法，登记名称固定的限流器并预先加载限流脚本
+     * 降级配置错误时启动失败；Redis暂不可用时只记录日志，首次获取令牌时再加载脚本
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        List<LimiterPlan> plans = preloadLimiterPlans();
+        int registered = 0;
+        for (LimiterPlan plan : plans) {
+            if (!plan.isDynamic()) {
+                Limiter annotation = plan.getLimiter();
+                limiterService.initRateLimiter(annotation.rate(), annotation.rateInterval(), annotation.rateIntervalUnit(),
+                        annotation.rateType(), annotation.algorithm(), annotation.lease(), plan.getResourceName());
+                registered++;
+            }
+        }
+        try {
+            limiterService.loadScripts();
+        } catch (Exception e) {
+            log.warn("预加载限流脚本失败", e);
+        }
+        log.info("预先生成流控执行计划{}个,登记限流器{}个", plans.size(), registered);
+    }
+
+    @Override
+    public void destroy() {
+        closeDenyLog();
+        defaultAsyncExecutor.shutdown();
+    }
+
+    /**
+     * 指定异步获取令牌后执行目标方法的线程池 默认使用切面自带的线程池
+     *
+     * @param asyncExecutor 线程池 由调用方负责关闭
+     */
+    public void setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        this.asyncScheduler = Schedulers.fromExecutor(asyncExecutor);
+    }
+
+    @Pointcut("@annotation(limiter.annotation.Limiter) || @annotation(limiter.annotation.Limiters)")
     public void limiterAnnotationPointcut() {
     }
 
     @Around("limiterAnnotationPointcut()")
     public Object invokeLimiter(ProceedingJoinPoint pjp) throws Throwable {
-        Method originMethod = resolveMethod(pjp);
-        Limiter annotation = originMethod.getAnnotation(Limiter.class);
-        if (annotation == null) {
-            throw new IllegalStateException("注解状态异常");
+        LimiterPlan[] plans = getLimiterPlans(pjp);
+        switch (plans[0].getInvocationType()) {
+            case FUTURE:
+                return invokeFuture(pjp, plans);
+            case MONO:
+                return invokeMono(pjp, plans);
+            case FLUX:
+                return invokeFlux(pjp, plans);
+            default:
+                break;
+        }
+        if (plans.length > 1) {
+            return invokeAll(pjp, plans);
         }
-        String resourceName = getResourceNameWrapperArgs(annotation, originMethod, pjp);
+        LimiterPlan plan = plans[0];
+        Limiter annotation = plan.getLimiter();
+        Object[] args = pjp.getArgs();
         try {
-            limiterService.initRateLimiter(annotation.rate(), annotation.rateInterval(), annotation.rateIntervalUnit(), annotation.rateType(), resourceName);
-            RRateLimiter rateLimiter = limiterService.getRateLimiter(resourceName);
+            LimiterHandle handle = resolveRateLimiter(plan, plan.getResourceName(args));
+            long permits = plan.getPermits(args);
+            long start = System.nanoTime();
+            //令牌数超过速率时永远无法获取 直接拒绝
+            if (exceedsRate(handle, permits)) {
+                plan.getMetrics().denied(0);
+                throw new BlockException("流控阻塞");
+            }
             //阻塞式流控
             if (annotation.isBlock()) {
+                boolean acquired = false;
                 try {
-                    rateLimiter.acquire(annotation.permits());
+                    handle.acquire(permits);
+                    acquired = true;
+                    long waited = System.nanoTime() - start;
+                    plan.getMetrics().waited(waited);
+                    plan.getMetrics().acquired(waited);
                 } catch (Throwable ex) {
                     //返回超时流控阻塞就降级处理
                     if (ex instanceof RedisResponseTimeoutException) {
+                        plan.getMetrics().denied(System.nanoTime() - start);
                         throw new BlockException("流控阻塞");
                     }
                 }
-                return pjp.proceed();
+                // 获取异常放行时没有持有并发数 不能上报完成
+                return acquired ? proceed(pjp, plan, handle, permits) : pjp.proceed();
             }
             //非阻塞
-            if (!rateLimiter.tryAcquire(annotation.permits(), annotation.timeout(), annotation.unit())) {
+            boolean acquired = handle.tryAcquire(permits, annotation.timeout(), annotation.unit());
+            long elapsed = System.nanoTime() - start;
+            if (!acquired) {
+                plan.getMetrics().denied(elapsed);
                 throw new BlockException("流控阻塞");
             }
-            return pjp.proceed();
+            plan.getMetrics().acquired(elapsed);
+            return proceed(pjp, plan, handle, permits);
         } catch (Throwable ex) {
             if (ex instanceof BlockException) {
+                plan.getDenyLog().record();
                 if (StrUtil.isNotBlank(annotation.fallback())) {
-                    log.warn(toWarnStringLimiter(annotation, resourceName, MethodUtil.resolveMethodName(originMethod), getFallbackMethodName(pjp, annotation.fallback(), annotation.fallbackClass())));
-                    return handleFallback(pjp, annotation, ex);
+                    return fallback(pjp, plan, ex);
                 }
                 return "";
             }
-            log.error(toErrorStringLimiter(annotation, resourceName, MethodUtil.resolveMethodName(originMethod), getFallbackMethodName(pjp, annotation.fallback(), annotation.fallbackClass())));
+            log.error(plan.getErrorMessage());
+            return pjp.proceed();
+        }
+    }
+
+    /**
+     * 多个流控注解 所有限流器同时获取令牌且不等待，任一限流器令牌不足即执行该限流器的降级方法
+     */
+    private Object invokeAll(ProceedingJoinPoint pjp, LimiterPlan[] plans) throws Throwable {
+        Object[] args = pjp.getArgs();
+        long[] permits = new long[plans.length];
+        List<LimiterHandle> handles;
+        int denied;
+        long start = System.nanoTime();
+        try {
+            handles = resolveRateLimiters(plans, args, permits);
+            denied = exceedsRate(handles, permits);
+            if (denied < 0) {
+                denied = limiterService.tryAcquireAll(handles, permits);
+            }
+            recordAll(plans, denied, System.nanoTime() - start);
+        } catch (Throwable ex) {
+            log.error(plans[0].getErrorMessage(), ex);
+            return pjp.proceed();
+        }
+        if (denied < 0) {
+            if (!hasAdaptive(plans)) {
+                return pjp.proceed();
+            }
+            Runnable completion = completion(plans, handles.toArray(new LimiterHandle[0]), permits);
+            try {
+                return pjp.proceed();
+            } finally {
+                completion.run();
+            }
+        }
+        LimiterPlan plan = plans[denied];
+        plan.getDenyLog().record();
+        if (StrUtil.isNotBlank(plan.getLimiter().fallback())) {
+            return fallback(pjp, plan, new BlockException("流控阻塞"));
+        }
+        return "";
+    }
+
+    /**
+     * 返回CompletionStage的方法 获取令牌与执行目标方法都不阻塞线程
+     * 令牌在调用线程上已获取完成时直接执行目标方法，否则切换到asyncExecutor执行
+     */
+    @SuppressWarnings("unchecked")
+    private Object invokeFuture(ProceedingJoinPoint pjp, LimiterPlan[] plans) {
+        Object[] args = pjp.getArgs();
+        CompletableFuture<Acquisition> permit = acquireAsync(plans, args).toCompletableFuture();
+        Function<Acquisition, CompletionStage<Object>> invocation = acquisition -> {
+            Object result = acquisition.denied == null ? proceed(pjp, plans, acquisition, InvocationType.FUTURE)
+                    : blocked(pjp, acquisition.denied, CompletableFuture.completedFuture(null));
+            return result == null ? CompletableFuture.completedFuture(null) : (CompletionStage<Object>) result;
+        };
+        return permit.isDone() ? permit.thenCompose(invocation) : permit.thenComposeAsync(invocation, asyncExecutor);
+    }
+
+    /**
+     * 返回Mono的方法 订阅时才获取令牌
+     */
+    @SuppressWarnings("unchecked")
+    private Object invokeMono(ProceedingJoinPoint pjp, LimiterPlan[] plans) {
+        Object[] args = pjp.getArgs();
+        return Mono.defer(() -> acquireMono(plans, args))
+                .flatMap(acquisition -> {
+                    Object result = acquisition.denied == null ? proceed(pjp, plans, acquisition, InvocationType.MONO)
+                            : blocked(pjp, acquisition.denied, Mono.empty());
+                    return result == null ? Mono.empty() : (Mono<Object>) result;
+                });
+    }
+
+    /**
+     * 返回Flux的方法 订阅时才获取令牌
+     */
+    @SuppressWarnings("unchecked")
+    private Object invokeFlux(ProceedingJoinPoint pjp, LimiterPlan[] plans) {
+        Object[] args = pjp.getArgs();
+        return Mono.defer(() -> acquireMono(plans, args))
+                .flatMapMany(acquisition -> {
+                    Object result = acquisition.denied == null ? proceed(pjp, plans, acquisition, InvocationType.FLUX)
+                            : blocked(pjp, acquisition.denied, Flux.empty());
+                    return result == null ? Flux.empty() : (Flux<Object>) result;
+                });
+    }
+
+    /**
+     * 异步获取令牌 未在订阅线程上完成时在asyncScheduler上发出结果，目标方法不在netty线程或限流定时器线程上执行
+     *
+     * @return 获取结果
+     */
+    private Mono<Acquisition> acquireMono(LimiterPlan[] plans, Object[] args) {
+        CompletableFuture<Acquisition> permit = acquireAsync(plans, args).toCompletableFuture();
+        Mono<Acquisition> acquisition = Mono.fromCompletionStage(permit);
+        return permit.isDone() ? acquisition : acquisition.publishOn(asyncScheduler);
+    }
+
+    /**
+     * 异步获取令牌 异常时与同步流程一致：阻塞获取超时视为流控，其余异常放行
+     *
+     * @return 获取结果 持有获取令牌的限流器，目标方法结束时向同一个限流器上报
+     */
+    private CompletionStage<Acquisition> acquireAsync(LimiterPlan[] plans, Object[] args) {
+        if (plans.length > 1) {
+            return acquireAllAsync(plans, args);
+        }
+        LimiterPlan plan = plans[0];
+        Limiter annotation = plan.getLimiter();
+        long start = System.nanoTime();
+        LimiterHandle[] handles = new LimiterHandle[1];
+        long[] permits = new long[1];
+        CompletionStage<Boolean> permit;
+        try {
+            handles[0] = resolveRateLimiter(plan, plan.getResourceName(args));
+            permits[0] = plan.getPermits(args);
+            if (exceedsRate(handles[0], permits[0])) {
+                permit = CompletableFuture.completedFuture(false);
+            } else {
+                permit = annotation.isBlock()
+                        ? handles[0].acquireAsync(permits[0]).thenApply(v -> true)
+                        : handles[0].tryAcquireAsync(permits[0], annotation.timeout(), annotation.unit());
+            }
+        } catch (Throwable ex) {
+            CompletableFuture<Boolean> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            permit = failed;
+        }
+        return permit.handle((acquired, ex) -> {
+            long elapsed = System.nanoTime() - start;
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                //返回超时流控阻塞就降级处理
+                if (annotation.isBlock() && cause instanceof RedisResponseTimeoutException) {
+                    plan.getMetrics().denied(elapsed);
+                    return new Acquisition(plan, null, null);
+                }
+                log.error(plan.getErrorMessage(), cause);
+                plan.getMetrics().acquired(elapsed);
+                return Acquisition.FAIL_OPEN;
+            }
+            if (!acquired) {
+                plan.getMetrics().denied(elapsed);
+                return new Acquisition(plan, null, null);
+            }
+            if (annotation.isBlock()) {
+                plan.getMetrics().waited(elapsed);
+            }
+            plan.getMetrics().acquired(elapsed);
+            return new Acquisition(null, handles, permits);
+        });
+    }
+
+    private CompletionStage<Acquisition> acquireAllAsync(LimiterPlan[] plans, Object[] args) {
+        long[] permits = new long[plans.length];
+        long start = System.nanoTime();
+        List<LimiterHandle> handles;
+        CompletionStage<Integer> denied;
+        try {
+            handles = resolveRateLimiters(plans, args, permits);
+            int exceeded = exceedsRate(handles, permits);
+            denied = exceeded >= 0 ? CompletableFuture.completedFuture(exceeded) : limiterService.tryAcquireAllAsync(handles, permits);
+        } catch (Throwable ex) {
+            handles = null;
+            CompletableFuture<Integer> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            denied = failed;
+        }
+        List<LimiterHandle> acquired = handles;
+        return denied.handle((index, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                log.error(plans[0].getErrorMessage(), cause);
+                return Acquisition.FAIL_OPEN;
+            }
+            recordAll(plans, index, System.nanoTime() - start);
+            return index < 0 ? new Acquisition(null, acquired.toArray(new LimiterHandle[0]), permits)
+                    : new Acquisition(plans[index], null, null);
+        });
+    }
+
+    private List<LimiterHandle> resolveRateLimiters(LimiterPlan[] plans, Object[] args, long[] permits) {
+        List<LimiterHandle> handles = new ArrayList<>(plans.length);
+        for (int i = 0; i < plans.length; i++) {
+            handles.add(resolveRateLimiter(plans[i], plans[i].getResourceName(args)));
+            permits[i] = plans[i].getPermits(args);
+        }
+        if (plans[0].markCompositeChecked() && !limiterService.isAtomic(handles)) {
+            log.warn("{} 的多个限流器无法在一次Redis调用中原子获取，本地、租约、非令牌桶算法或不同slot的限流器将依次获取，令牌不足时再归还",
+                    plans[0].getMethodName());
+        }
+        return handles;
+    }
+
+    /**
+     * 每次调用都按注解重新解析 不保留登记参数，按入参拼接的名称淘汰后不占用内存
+     */
+    private LimiterHandle resolveRateLimiter(LimiterPlan plan, String resourceName) {
+        Limiter annotation = plan.getLimiter();
+        return limiterService.resolveRateLimiter(annotation.rate(), annotation.rateInterval(), annotation.rateIntervalUnit(),
+                annotation.rateType(), annotation.algorithm(), annotation.lease(), resourceName);
+    }
+
+    private Object blocked(ProceedingJoinPoint pjp, LimiterPlan plan, Object emptyResult) {
+        plan.getDenyLog().record();
+        if (StrUtil.isBlank(plan.getLimiter().fallback())) {
+            return emptyResult;
+        }
+        return fallback(pjp, plan, new BlockException("流控阻塞"));
+    }
+
+    /**
+     * 执行降级方法并记录耗时
+     */
+    private Object fallback(ProceedingJoinPoint pjp, LimiterPlan plan, Throwable ex) {
+        long start = System.nanoTime();
+        try {
+            return handleFallback(pjp, plan, ex);
+        } finally {
+            plan.getMetrics().fallback(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 按入参计算的令牌数超过限流器单次可获取的上限时 无论等待多久都无法获取，直接拒绝而不是交给限流器抛出异常后放行
+     *
+     * @param handle  限流器
+     * @param permits 令牌数
+     * @return 是否超过上限
+     */
+    private static boolean exceedsRate(LimiterHandle handle, long permits) {
+        return permits > handle.getMaxPermits();
+    }
+
+    /**
+     * @return 令牌数超过单次可获取上限的限流器下标 都未超过时为-1
+     */
+    private static int exceedsRate(List<LimiterHandle> handles, long[] permits) {
+        for (int i = 0; i < permits.length; i++) {
+            if (exceedsRate(handles.get(i), permits[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 多个限流器同时获取时 全部成功记为获取成功，否则只记令牌不足的限流器
+     */
+    private static void recordAll(LimiterPlan[] plans, int denied, long elapsed) {
+        if (denied >= 0) {
+            plans[denied].getMetrics().denied(elapsed);
+            return;
+        }
+        for (LimiterPlan plan : plans) {
+            plan.getMetrics().acquired(elapsed);
+        }
+    }
+
+    /**
+     * 执行目标方法 自适应并发限流器在目标方法结束时归还并发数并上报耗时
+     */
+    private static Object proceed(ProceedingJoinPoint pjp, LimiterPlan plan, LimiterHandle handle, long permits) throws Throwable {
+        if (!plan.isAdaptive()) {
             return pjp.proceed();
         }
+        long start = System.nanoTime();
+        try {
+            return pjp.proceed();
+        } finally {
+            handle.complete(permits, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 执行目标方法 异常包装为对应类型的失败结果，自适应并发限流器在异步结果完成时结束计时
+     */
+    private Object proceed(ProceedingJoinPoint pjp, LimiterPlan[] plans, Acquisition acquisition, InvocationType invocationType) {
+        Runnable completion = acquisition.handles == null || !hasAdaptive(plans)
+                ? null : completion(plans, acquisition.handles, acquisition.permits);
+        Object result;
+        try {
+            result = pjp.proceed();
+        } catch (Throwable ex) {
+            if (completion != null) {
+                completion.run();
+            }
+            switch (invocationType) {
+                case MONO:
+                    return Mono.error(ex);
+                case FLUX:
+                    return Flux.error(ex);
+                default:
+                    CompletableFuture<Object> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(ex);
+                    return failed;
+            }
+        }
+        if (completion == null) {
+            return result;
+        }
+        if (result == null) {
+            completion.run();
+            return null;
+        }
+        switch (invocationType) {
+            case MONO:
+                return ((Mono<?>) result).doFinally(signal -> completion.run());
+            case FLUX:
+                return ((Flux<?>) result).doFinally(signal -> completion.run());
+            default:
+                return ((CompletionStage<?>) result).whenComplete((value, ex) -> completion.run());
+        }
+    }
+
+    /**
+     * @param handles 获取令牌的限流器 与plans一一对应，只使用自适应并发限流器；配置被覆盖后仍向获取时的限流器归还
+     * @param permits 获取到的令牌数
+     * @return 从调用时开始计时，执行时向自适应并发限流器上报耗时的回调
+     */
+    private static Runnable completion(LimiterPlan[] plans, LimiterHandle[] handles, long[] permits) {
+        long start = System.nanoTime();
+        return () -> {
+            long elapsed = System.nanoTime() - start;
+            for (int i = 0; i < plans.length; i++) {
+                if (plans[i].isAdaptive()) {
+                    handles[i].complete(permits[i], elapsed);
+                }
+            }
+        };
+    }
+
+    private static boolean hasAdaptive(LimiterPlan[] plans) {
+        for (LimiterPlan plan : plans) {
+            if (plan.isAdaptive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 一次异步获取的结果 获取异常放行时不持有令牌，目标方法结束时不上报
+     */
+    private static final class Acquisition {
+
+        private static final Acquisition FAIL_OPEN = new Acquisition(null, null, null);
+
+        /**
+         * 令牌不足的执行计划 为null时执行目标方法
+         */
+        private final LimiterPlan denied;
+
+        /**
+         * 获取到令牌的限流器 与执行计划一一对应，未获取到令牌时为null
+         */
+        private final LimiterHandle[] handles;
+
+        /**
+         * 各限流器获取到的令牌数
+         */
+        private final long[] permits;
+
+        private Acquisition(LimiterPlan denied, LimiterHandle[] handles, long[] permits) {
+            this.denied = denied;
+            this.handles = handles;
+            this.permits = permits;
+        }
     }
 
 }
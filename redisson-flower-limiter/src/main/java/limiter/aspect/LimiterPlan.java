@@ -0,0 +1,240 @@
+package limiter.aspect;
+
+import cn.hutool.core.util.StrUtil;
+import limiter.annotation.Limiter;
+import limiter.api.RateAlgorithm;
+import limiter.metrics.ResourceMetrics;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 方法级流控执行计划
+ * 首次调用时解析注解、资源名、入参提取器与降级方法句柄，之后每次调用直接复用，不再反射与解析字符串
+ *
+ * @author kana
+ * @date 2026/10/18 10:05
+ */
+@Getter
+public final class LimiterPlan {
+
+    /**
+     * 被流控的目标方法
+     */
+    private final Method method;
+
+    /**
+     * 流控注解
+     */
+    private final Limiter limiter;
+
+    /**
+     * 目标方法签名名称 用于日志
+     */
+    private final String methodName;
+
+    /**
+     * 静态资源名 args为空时即为最终的流控器名称
+     */
+    private final String resourceName;
+
+    /**
+     * 降级方法 未配置或找不到时为null
+     */
+    private final Method fallbackMethod;
+
+    /**
+     * 降级方法所在的bean类型 为null时在目标对象上执行
+     */
+    private final Class<?> fallbackClass;
+
+    /**
+     * 降级方法是否多接收一个异常参数
+     */
+    private final boolean fallbackWithException;
+
+    /**
+     * 降级方法签名名称 用于日志
+     */
+    private final String fallbackMethodName;
+
+    /**
+     * 返回类型 异步类型不阻塞线程获取令牌
+     */
+    private final InvocationType invocationType;
+
+    /**
+     * 是否为自适应并发限流 目标方法结束时需要归还并发数并上报耗时
+     */
+    private final boolean adaptive;
+
+    /**
+     * 流控异常日志 按静态资源名预先生成
+     */
+    private final String errorMessage;
+
+    /**
+     * 流控阻塞计数 由DenyLogReporter周期性汇总输出
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final DenyLogReporter.DenyLog denyLog;
+
+    /**
+     * 资源指标 按静态资源名聚合
+     */
+    private final ResourceMetrics metrics;
+
+    @Getter(AccessLevel.NONE)
+    private final ArgumentExtractor[] argumentExtractors;
+
+    /**
+     * 固定的令牌数 未配置permitsExpression时使用
+     */
+    @Getter(AccessLevel.NONE)
+    private final long permits;
+
+    /**
+     * 按入参计算令牌数的提取器 未配置时为null
+     */
+    @Getter(AccessLevel.NONE)
+    private final ArgumentExtractor permitsExtractor;
+
+    /**
+     * 降级方法句柄 统一为(目标对象, 异常, 原始入参)
+     */
+    @Getter(AccessLevel.NONE)
+    private final MethodHandle fallbackHandle;
+
+    /**
+     * 多个流控注解时是否已检查过能否原子获取 只在首次调用时检查并告警
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicBoolean compositeChecked = new AtomicBoolean();
+
+    /**
+     * 单例降级类的实例 首次降级时从容器获取
+     */
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile Object fallbackBean;
+
+    LimiterPlan(Method method, Limiter limiter, String methodName, String resourceName,
+                ArgumentExtractor[] argumentExtractors, Method fallbackMethod, Class<?> fallbackClass,
+                String fallbackMethodName, ResourceMetrics metrics) {
+        this.method = method;
+        this.limiter = limiter;
+        this.methodName = methodName;
+        this.resourceName = resourceName;
+        this.argumentExtractors = argumentExtractors;
+        this.permits = limiter.permits();
+        this.permitsExtractor = StrUtil.isBlank(limiter.permitsExpression())
+                ? null : ArgumentExtractor.compile(limiter.permitsExpression());
+        this.fallbackMethod = fallbackMethod;
+        this.fallbackClass = fallbackClass;
+        this.fallbackWithException = fallbackMethod != null
+                && fallbackMethod.getParameterTypes().length != method.getParameterTypes().length;
+        this.fallbackMethodName = fallbackMethodName;
+        this.fallbackHandle = fallbackHandle(fallbackMethod, method.getParameterTypes().length, fallbackWithException);
+        this.invocationType = InvocationType.of(method);
+        this.adaptive = limiter.algorithm() == RateAlgorithm.ADAPTIVE;
+        this.metrics = metrics;
+        this.errorMessage = AbstractLimiterAspectSupport.toErrorStringLimiter(limiter, resourceName, methodName, fallbackMethodName);
+        this.denyLog = new DenyLogReporter.DenyLog(
+                AbstractLimiterAspectSupport.toWarnStringLimiter(limiter, resourceName, methodName, fallbackMethodName));
+    }
+
+    /**
+     * 首次调用返回true 之后都返回false
+     */
+    boolean markCompositeChecked() {
+        return compositeChecked.compareAndSet(false, true);
+    }
+
+    /**
+     * 执行降级方法 不经过反射，异常参数直接传入句柄，不复制入参数组
+     *
+     * @param target 降级方法所在对象 静态方法时忽略
+     * @param args   原始入参
+     * @param ex     流控异常
+     * @return 降级方法返回值
+     */
+    Object invokeFallback(Object target, Object[] args, Throwable ex) throws Throwable {
+        return (Object) fallbackHandle.invokeExact(target, ex, args);
+    }
+
+    private static MethodHandle fallbackHandle(Method fallbackMethod, int parameterCount, boolean withException) {
+        if (fallbackMethod == null) {
+            return null;
+        }
+        MethodHandle handle;
+        try {
+            fallbackMethod.setAccessible(true);
+            handle = MethodHandles.lookup().unreflect(fallbackMethod);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalStateException("无法访问降级方法: " + fallbackMethod, e);
+        }
+        if (Modifier.isStatic(fallbackMethod.getModifiers())) {
+            handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        if (withException) {
+            // (目标对象, 入参..., 异常) 调整为 (目标对象, 异常, 入参...)
+            MethodType type = handle.type();
+            int[] reorder = new int[type.parameterCount()];
+            for (int i = 1; i <= parameterCount; i++) {
+                reorder[i] = i + 1;
+            }
+            reorder[parameterCount + 1] = 1;
+            MethodType permuted = type.dropParameterTypes(parameterCount + 1, parameterCount + 2)
+                    .insertParameterTypes(1, type.parameterType(parameterCount + 1));
+            handle = MethodHandles.permuteArguments(handle, permuted, reorder);
+        } else {
+            handle = MethodHandles.dropArguments(handle, 1, Throwable.class);
+        }
+        return handle.asSpreader(Object[].class, parameterCount)
+                .asType(MethodType.methodType(Object.class, Object.class, Throwable.class, Object[].class));
+    }
+
+    /**
+     * 根据入参拼接流控器名称
+     *
+     * @param args 实际入参
+     * @return 流控器名称
+     */
+    public String getResourceName(Object[] args) {
+        if (argumentExtractors.length == 0) {
+            return resourceName;
+        }
+        StringBuilder builder = new StringBuilder(resourceName);
+        for (ArgumentExtractor extractor : argumentExtractors) {
+            builder.append(extractor.extract(args));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 计算本次调用获取的令牌数 按入参计算时不足1按1计算，不做上限截断，超过限流器当前速率时由切面直接拒绝
+     *
+     * @param args 入参
+     * @return 令牌数
+     */
+    public long getPermits(Object[] args) {
+        if (permitsExtractor == null) {
+            return permits;
+        }
+        return Math.max(1, permitsExtractor.extractPermits(args));
+    }
+
+    /**
+     * @return 流控器名称是否依赖入参
+     */
+    public boolean isDynamic() {
+        return argumentExtractors.length > 0;
+    }
+}
@@ -11,7 +11,7 @@ import org.springframework.context.annotation.Import;
  * @date 2022/4/22 16:33
  */
 @Configuration
-@Import(LimiterConfigure.class)
+@Import({LimiterConfigure.class, LimiterMetricsConfigure.class})
 @ConditionalOnProperty(prefix = "limiter", value = "enable", havingValue = "true")
 public class LimiterAutoConfiguration {
 }
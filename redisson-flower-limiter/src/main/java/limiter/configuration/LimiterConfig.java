@@ -3,6 +3,9 @@ package limiter.configuration;
 import lombok.Data;
 import lombok.experimental.Accessors;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * 流控基础配置
  *
@@ -43,4 +46,55 @@ public class LimiterConfig {
      */
     private Integer minIdle = 0;
 
+    /**
+     * 集群模式 配置节点后忽略host/port
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * 哨兵模式 配置主节点名称后忽略host/port
+     */
+    private Sentinel sentinel = new Sentinel();
+
+    /**
+     * 主从模式的从节点地址(host:port) 主节点为host/port
+     */
+    private List<String> replicaNodes = new ArrayList<>();
+
+    /**
+     * 集群配置
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class Cluster {
+
+        /**
+         * 集群节点地址(host:port) 至少一个
+         */
+        private List<String> nodes = new ArrayList<>();
+    }
+
+    /**
+     * 哨兵配置
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class Sentinel {
+
+        /**
+         * 主节点名称
+         */
+        private String master;
+
+        /**
+         * 哨兵节点地址(host:port)
+         */
+        private List<String> nodes = new ArrayList<>();
+
+        /**
+         * 哨兵密码 默认无
+         */
+        private String password;
+    }
+
 }
@@ -3,6 +3,8 @@ package limiter.configuration;
 import limiter.api.LimiterService;
 import limiter.api.impl.RedissonLimiterServiceImpl;
 import limiter.aspect.LimiterAspect;
+import limiter.metrics.LimiterMetrics;
+import org.redisson.api.RedissonClient;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.ApplicationContext;
@@ -10,6 +12,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import javax.annotation.Resource;
+import java.util.Objects;
+import java.util.concurrent.Executor;
 
 /**
  * @author kana
@@ -19,6 +23,11 @@ import javax.annotation.Resource;
 @Configuration
 public class LimiterConfigure {
 
+    /**
+     * 异步流控方法获取令牌后执行目标方法的线程池bean名称 不存在时使用切面自带的线程池
+     */
+    public static final String ASYNC_EXECUTOR_BEAN_NAME = "limiterAsyncExecutor";
+
     @Resource
     private ApplicationContext applicationContext;
 
@@ -41,12 +50,29 @@ public class LimiterConfigure {
     public LimiterService limiterService() {
         LimiterConfig limiterConfig = this.limiterConfig();
         RedissonConfig redissonConfig = this.redissonConfig();
-        return new RedissonLimiterServiceImpl(limiterConfig, redissonConfig);
+        RedissonClient redissonClient = Boolean.FALSE.equals(redissonConfig.getShareClient())
+                ? null : applicationContext.getBeanProvider(RedissonClient.class).getIfUnique();
+        RedissonLimiterServiceImpl limiterService = Objects.nonNull(redissonClient)
+                ? new RedissonLimiterServiceImpl(redissonClient, redissonConfig)
+                : new RedissonLimiterServiceImpl(limiterConfig, redissonConfig);
+        limiterService.setLimiterMetrics(this.limiterMetrics());
+        return limiterService;
     }
 
     @Bean
     public LimiterAspect limiterAspect() {
-        return new LimiterAspect(this.limiterService(), applicationContext);
+        Long denyLogIntervalSeconds = this.redissonConfig().getDenyLogIntervalSeconds();
+        LimiterAspect limiterAspect = Objects.nonNull(denyLogIntervalSeconds)
+                ? new LimiterAspect(this.limiterService(), applicationContext, this.limiterMetrics(), denyLogIntervalSeconds)
+                : new LimiterAspect(this.limiterService(), applicationContext, this.limiterMetrics());
+        if (applicationContext.containsBean(ASYNC_EXECUTOR_BEAN_NAME)) {
+            limiterAspect.setAsyncExecutor(applicationContext.getBean(ASYNC_EXECUTOR_BEAN_NAME, Executor.class));
+        }
+        return limiterAspect;
+    }
+
+    private LimiterMetrics limiterMetrics() {
+        return applicationContext.getBeanProvider(LimiterMetrics.class).getIfAvailable(() -> LimiterMetrics.NOOP);
     }
 
 }
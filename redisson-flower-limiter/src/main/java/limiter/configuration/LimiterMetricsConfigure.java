@@ -0,0 +1,28 @@
+package limiter.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import limiter.metrics.LimiterMetrics;
+import limiter.metrics.MicrometerLimiterMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 限流指标 引入Micrometer且存在MeterRegistry时生效
+ *
+ * @author kana
+ * @date 2026/10/18 19:30
+ */
+@Configuration
+@ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+public class LimiterMetricsConfigure {
+
+    @Bean
+    @ConditionalOnMissingBean
+    public LimiterMetrics limiterMetrics(ObjectProvider<MeterRegistry> meterRegistry) {
+        MeterRegistry registry = meterRegistry.getIfAvailable();
+        return registry == null ? LimiterMetrics.NOOP : new MicrometerLimiterMetrics(registry);
+    }
+}
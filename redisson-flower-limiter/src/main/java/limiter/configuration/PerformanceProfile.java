@@ -0,0 +1,72 @@
+package limiter.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.redisson.config.TransportMode;
+
+/**
+ * Redis客户端性能预设 RedissonConfig中单独配置的项优先于预设
+ * 线程数按CPU核数计算，epoll在当前环境不可用时退回NIO
+ *
+ * @author kana
+ * @date 2026/10/18 21:30
+ */
+@Getter
+@AllArgsConstructor
+public enum PerformanceProfile {
+
+    /**
+     * 保持原有配置 其余参数使用Redisson默认值
+     */
+    DEFAULT(null, 0, 0, null, null, null, null, null),
+
+    /**
+     * 低延迟 连接全部预先建立并开启keepalive，失败后只重试一次，尽快降级
+     */
+    LOW_LATENCY(TransportMode.EPOLL, 1, 2, 64, 64, 1, 100, true),
+
+    /**
+     * 高吞吐 更多的netty线程与连接分摊并发的脚本调用，保留Redisson默认的重试
+     */
+    HIGH_THROUGHPUT(TransportMode.EPOLL, 2, 4, 256, 32, 3, 1500, true);
+
+    /**
+     * 传输方式 null为NIO
+     */
+    private final TransportMode transportMode;
+
+    /**
+     * 每个CPU核的业务线程数 0为沿用默认值
+     */
+    private final int threadsPerCore;
+
+    /**
+     * 每个CPU核的netty线程数 0为沿用默认值
+     */
+    private final int nettyThreadsPerCore;
+
+    /**
+     * 每个节点的连接池大小
+     */
+    private final Integer connectionPoolSize;
+
+    /**
+     * 每个节点的最小空闲连接数
+     */
+    private final Integer connectionMinimumIdleSize;
+
+    /**
+     * 命令失败后的重试次数
+     */
+    private final Integer retryAttempts;
+
+    /**
+     * 重试间隔 毫秒
+     */
+    private final Integer retryInterval;
+
+    /**
+     * 是否开启TCP keepalive
+     */
+    private final Boolean keepAlive;
+}
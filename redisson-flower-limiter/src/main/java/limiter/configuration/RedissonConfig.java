@@ -2,6 +2,7 @@ package limiter.configuration;
 
 import lombok.Data;
 import org.redisson.client.codec.Codec;
+import org.redisson.config.TransportMode;
 
 /**
  * redisson配置
@@ -12,9 +13,115 @@ import org.redisson.client.codec.Codec;
 @Data
 public class RedissonConfig {
 
+    /**
+     * 容器中已有唯一的RedissonClient时是否直接复用 默认true，复用时spring.redis与客户端相关的配置不生效
+     */
+    private Boolean shareClient;
+
     private Integer thread;
 
     private Integer nettyThreads;
 
+    /**
+     * 性能预设 low-latency/high-throughput 默认保持原有配置
+     */
+    private PerformanceProfile profile = PerformanceProfile.DEFAULT;
+
+    /**
+     * 传输方式 NIO/EPOLL/KQUEUE 本地不可用时退回NIO
+     */
+    private TransportMode transportMode;
+
+    /**
+     * 每个节点的连接池大小
+     */
+    private Integer connectionPoolSize;
+
+    /**
+     * 每个节点的最小空闲连接数 未配置时使用spring.redis.min-idle
+     */
+    private Integer connectionMinimumIdleSize;
+
+    /**
+     * 命令失败后的重试次数
+     */
+    private Integer retryAttempts;
+
+    /**
+     * 重试间隔 毫秒
+     */
+    private Integer retryInterval;
+
+    /**
+     * 建立连接超时 毫秒
+     */
+    private Integer connectTimeout;
+
+    /**
+     * 空闲连接关闭时间 毫秒
+     */
+    private Integer idleConnectionTimeout;
+
+    /**
+     * 连接心跳间隔 毫秒 0为关闭
+     */
+    private Integer pingConnectionInterval;
+
+    /**
+     * 是否关闭Nagle算法
+     */
+    private Boolean tcpNoDelay;
+
+    /**
+     * 是否开启TCP keepalive
+     */
+    private Boolean keepAlive;
+
+    /**
+     * DNS变更检测间隔 毫秒 -1为关闭 集群与哨兵模式不支持
+     */
+    private Long dnsMonitoringInterval;
+
     private Codec codec;
+
+    /**
+     * 是否沿用JsonJackson作为客户端默认编码 用于通过getRedissonClient读写已有JSON数据的业务 默认false使用字符串编码
+     * 配置codec时以codec为准
+     */
+    private Boolean jsonCodec;
+
+    /**
+     * 租约模式下单个租约的有效时长 毫秒 默认100ms
+     */
+    private Long leaseMillis;
+
+    /**
+     * 本地最多保留的限流器数量 超出后淘汰最久未使用的 默认100000
+     */
+    private Long registryMaximumSize;
+
+    /**
+     * 限流器空闲多久后从本地淘汰 毫秒 默认10分钟
+     */
+    private Long registryExpireMillis;
+
+    /**
+     * 流控阻塞日志的汇总周期 秒 默认10秒
+     */
+    private Long denyLogIntervalSeconds;
+
+    /**
+     * 分布式限流器令牌不足后，直到下次释放令牌前是否直接在本地拒绝 默认开启
+     */
+    private Boolean denyCache;
+
+    /**
+     * 运行时覆盖限流配置的Redis hash与通知频道名称 为空时不开启
+     */
+    private String overrideKey;
+
+    /**
+     * 热点限流器阈值 单个节点每秒获取次数超过该值的分布式令牌桶自动切换为租约模式 默认不检测
+     */
+    private Long hotKeyThreshold;
 }
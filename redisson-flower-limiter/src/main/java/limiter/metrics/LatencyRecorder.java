@@ -0,0 +1,23 @@
+package limiter.metrics;
+
+/**
+ * 耗时记录器
+ *
+ * @author kana
+ * @date 2026/10/18 19:10
+ */
+
+@FunctionalInterface
+public interface LatencyRecorder {
+
+    /**
+     * 不记录
+     */
+    LatencyRecorder NOOP = nanos -> {
+    };
+
+    /**
+     * @param nanos 耗时 纳秒
+     */
+    void record(long nanos);
+}
@@ -0,0 +1,43 @@
+package limiter.metrics;
+
+/**
+ * 限流指标
+ * 指标对象在限流器或执行计划创建时获取并缓存，记录时不再按名称查找，也不产生对象分配
+ *
+ * @author kana
+ * @date 2026/10/18 19:10
+ */
+
+public interface LimiterMetrics {
+
+    /**
+     * 不记录任何指标
+     */
+    LimiterMetrics NOOP = new LimiterMetrics() {
+        @Override
+        public ResourceMetrics resource(String resourceName) {
+            return ResourceMetrics.NOOP;
+        }
+
+        @Override
+        public LatencyRecorder redisLatency(String operation) {
+            return LatencyRecorder.NOOP;
+        }
+    };
+
+    /**
+     * 获取资源的指标
+     *
+     * @param resourceName 资源名 使用注解上的静态名称，不包含按入参拼接的部分，保证标签数量有限
+     * @return 资源指标
+     */
+    ResourceMetrics resource(String resourceName);
+
+    /**
+     * 获取Redis调用的耗时记录器
+     *
+     * @param operation 操作名称 acquire/lease/acquire_all
+     * @return 耗时记录器
+     */
+    LatencyRecorder redisLatency(String operation);
+}
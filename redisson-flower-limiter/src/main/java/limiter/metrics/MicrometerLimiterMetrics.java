@@ -0,0 +1,106 @@
+package limiter.metrics;
+
+import com.google.common.collect.Maps;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Micrometer的限流指标
+ * limiter.requests 按result(acquired/denied)计数，limiter.acquire 获取令牌耗时，limiter.wait 阻塞等待时长，
+ * limiter.fallback 降级方法耗时，以上均带resource标签；limiter.redis 按operation标签记录Redis调用耗时
+ *
+ * @author kana
+ * @date 2026/10/18 19:10
+ */
+
+public class MicrometerLimiterMetrics implements LimiterMetrics {
+
+    private static final String RESOURCE_TAG = "resource";
+
+    private final MeterRegistry registry;
+
+    private final Map<String, ResourceMetrics> resources = Maps.newConcurrentMap();
+
+    public MicrometerLimiterMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public ResourceMetrics resource(String resourceName) {
+        return resources.computeIfAbsent(resourceName, MicrometerResourceMetrics::new);
+    }
+
+    @Override
+    public LatencyRecorder redisLatency(String operation) {
+        Timer timer = Timer.builder("limiter.redis")
+                .description("限流Redis调用耗时")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(registry);
+        return nanos -> timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private final class MicrometerResourceMetrics implements ResourceMetrics {
+
+        private final Counter acquiredCounter;
+
+        private final Counter deniedCounter;
+
+        private final Timer acquireTimer;
+
+        private final Timer waitTimer;
+
+        private final Timer fallbackTimer;
+
+        private MicrometerResourceMetrics(String resourceName) {
+            this.acquiredCounter = Counter.builder("limiter.requests")
+                    .description("获取令牌次数")
+                    .tags(RESOURCE_TAG, resourceName, "result", "acquired")
+                    .register(registry);
+            this.deniedCounter = Counter.builder("limiter.requests")
+                    .description("获取令牌次数")
+                    .tags(RESOURCE_TAG, resourceName, "result", "denied")
+                    .register(registry);
+            this.acquireTimer = Timer.builder("limiter.acquire")
+                    .description("获取令牌耗时")
+                    .tag(RESOURCE_TAG, resourceName)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.waitTimer = Timer.builder("limiter.wait")
+                    .description("阻塞等待令牌时长")
+                    .tag(RESOURCE_TAG, resourceName)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.fallbackTimer = Timer.builder("limiter.fallback")
+                    .description("降级方法耗时")
+                    .tag(RESOURCE_TAG, resourceName)
+                    .register(registry);
+        }
+
+        @Override
+        public void acquired(long nanos) {
+            acquiredCounter.increment();
+            acquireTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void denied(long nanos) {
+            deniedCounter.increment();
+            acquireTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void waited(long nanos) {
+            waitTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void fallback(long nanos) {
+            fallbackTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package limiter.metrics;
+
+/**
+ * 单个资源的限流指标
+ *
+ * @author kana
+ * @date 2026/10/18 19:10
+ */
+
+public interface ResourceMetrics {
+
+    /**
+     * 不记录任何指标
+     */
+    ResourceMetrics NOOP = new ResourceMetrics() {
+        @Override
+        public void acquired(long nanos) {
+        }
+
+        @Override
+        public void denied(long nanos) {
+        }
+
+        @Override
+        public void waited(long nanos) {
+        }
+
+        @Override
+        public void fallback(long nanos) {
+        }
+    };
+
+    /**
+     * 获取令牌成功
+     *
+     * @param nanos 获取令牌耗时
+     */
+    void acquired(long nanos);
+
+    /**
+     * 获取令牌失败被流控
+     *
+     * @param nanos 获取令牌耗时
+     */
+    void denied(long nanos);
+
+    /**
+     * 阻塞等待令牌
+     *
+     * @param nanos 等待时长
+     */
+    void waited(long nanos);
+
+    /**
+     * 执行降级方法
+     *
+     * @param nanos 降级方法耗时
+     */
+    void fallback(long nanos);
+}
@@ -0,0 +1,193 @@
+package limiter.util;
+
+import org.apache.commons.lang3.ClassUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于MethodHandle的属性读取器
+ * 按运行时类型解析一次getter(getX/isX)或字段，之后以invokeExact调用，不再经过Method.invoke/Field.get
+ * 以()结尾的属性名调用同名无参方法(如size())，数组的length读取数组长度
+ * 优先使用public类或接口中声明的public方法；非public的getter与字段只对应用自身的类通过setAccessible访问，JDK类不会触发模块访问检查
+ *
+ * @author kana
+ * @date 2026/10/18 11:10
+ */
+
+public final class PropertyAccessor {
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final MethodHandles.Lookup PUBLIC_LOOKUP = MethodHandles.publicLookup();
+
+    /**
+     * JDK扩展类(Java 9起为平台类)的类加载器 与启动类加载器加载的类一样不通过setAccessible访问
+     */
+    private static final ClassLoader PLATFORM_LOADER = ClassLoader.getSystemClassLoader().getParent();
+
+    private static final String METHOD_SUFFIX = "()";
+
+    private static final String ARRAY_LENGTH = "length";
+
+    private final String propertyName;
+
+    private final ClassValue<MethodHandle> handles = new ClassValue<MethodHandle>() {
+        @Override
+        protected MethodHandle computeValue(Class<?> type) {
+            return resolveHandle(type);
+        }
+    };
+
+    private PropertyAccessor(String propertyName) {
+        this.propertyName = propertyName;
+    }
+
+    public static PropertyAccessor of(String propertyName) {
+        if (StringUtils.isBlank(propertyName)) {
+            throw new IllegalArgumentException("propertyName can't be blank");
+        }
+        return new PropertyAccessor(propertyName);
+    }
+
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * 读取属性值
+     *
+     * @param target 目标对象 不能为空
+     * @return 属性值
+     */
+    public Object get(Object target) throws Throwable {
+        if (target == null) {
+            throw new IllegalArgumentException("Could not read property [" + propertyName + "] on null target");
+        }
+        return (Object) handles.get(target.getClass()).invokeExact(target);
+    }
+
+    private MethodHandle resolveHandle(Class<?> type) {
+        String capitalized = StringUtils.capitalize(propertyName);
+        try {
+            if (propertyName.endsWith(METHOD_SUFFIX)) {
+                Method method = findPublicMethod(type, propertyName.substring(0, propertyName.length() - METHOD_SUFFIX.length()));
+                if (method == null) {
+                    throw new IllegalArgumentException("Could not find method [" + propertyName + "] on type [" + type.getName() + "]");
+                }
+                return PUBLIC_LOOKUP.unreflect(method).asType(GETTER_TYPE);
+            }
+            if (type.isArray() && ARRAY_LENGTH.equals(propertyName)) {
+                return LOOKUP.findStatic(Array.class, "getLength", MethodType.methodType(int.class, Object.class)).asType(GETTER_TYPE);
+            }
+            Method getter = findPublicMethod(type, "get" + capitalized);
+            if (getter == null) {
+                getter = findPublicMethod(type, "is" + capitalized);
+            }
+            if (getter != null) {
+                return PUBLIC_LOOKUP.unreflect(getter).asType(GETTER_TYPE);
+            }
+            getter = findGetter(type, "get" + capitalized);
+            if (getter == null) {
+                getter = findGetter(type, "is" + capitalized);
+            }
+            if (getter != null && isApplicationClass(getter.getDeclaringClass())) {
+                ReflectionsUtil.makeAccessible(getter);
+                return LOOKUP.unreflect(getter).asType(GETTER_TYPE);
+            }
+            Field field = findField(type);
+            if (field != null && isApplicationClass(field.getDeclaringClass())) {
+                ReflectionsUtil.makeAccessible(field);
+                return LOOKUP.unreflectGetter(field).asType(GETTER_TYPE);
+            }
+            if (getter != null || field != null) {
+                throw new IllegalArgumentException("Could not access non-public property [" + propertyName + "] on JDK type ["
+                        + type.getName() + "]");
+            }
+        } catch (IllegalAccessException | NoSuchMethodException | SecurityException e) {
+            throw new IllegalArgumentException("Could not access property [" + propertyName + "] on type [" + type.getName() + "]: " + e, e);
+        } catch (RuntimeException e) {
+            // Java 9起setAccessible在未开放的模块上抛出InaccessibleObjectException
+            if (e instanceof IllegalArgumentException) {
+                throw e;
+            }
+            throw new IllegalArgumentException("Could not access property [" + propertyName + "] on type [" + type.getName() + "]: " + e, e);
+        }
+        throw new IllegalArgumentException("Could not find property [" + propertyName + "] on type [" + type.getName() + "]");
+    }
+
+    private static boolean isApplicationClass(Class<?> type) {
+        ClassLoader loader = type.getClassLoader();
+        return loader != null && loader != PLATFORM_LOADER;
+    }
+
+    private static Method findGetter(Class<?> type, String methodName) {
+        try {
+            Method method = type.getMethod(methodName);
+            if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+                return method;
+            }
+        } catch (NoSuchMethodException ignored) {
+            // 非public方法 逐级查找声明方法
+        }
+        for (Class<?> searchType = type; searchType != null && searchType != Object.class; searchType = searchType.getSuperclass()) {
+            try {
+                Method method = searchType.getDeclaredMethod(methodName);
+                if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+                    return method;
+                }
+            } catch (NoSuchMethodException ignored) {
+                // 继续向父类查找
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查找public类或接口中声明的无参方法 运行时类型不是public类(如Collections.unmodifiableList)时从其父类与接口中查找
+     */
+    private static Method findPublicMethod(Class<?> type, String methodName) {
+        List<Class<?>> candidates = new ArrayList<>();
+        candidates.add(type);
+        candidates.addAll(ClassUtils.getAllSuperclasses(type));
+        candidates.addAll(ClassUtils.getAllInterfaces(type));
+        for (Class<?> candidate : candidates) {
+            if (!Modifier.isPublic(candidate.getModifiers())) {
+                continue;
+            }
+            try {
+                Method method = candidate.getMethod(methodName);
+                if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+                    return method;
+                }
+            } catch (NoSuchMethodException ignored) {
+                // 继续查找父类与接口
+            }
+        }
+        return null;
+    }
+
+    private Field findField(Class<?> type) {
+        for (Class<?> searchType = type; searchType != null && searchType != Object.class; searchType = searchType.getSuperclass()) {
+            try {
+                Field field = searchType.getDeclaredField(propertyName);
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    return field;
+                }
+            } catch (NoSuchFieldException ignored) {
+                // 继续向父类查找
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,159 @@
+package limiter.api.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.redisson.api.RRateLimiter;
+import org.redisson.api.RateLimiterConfig;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 等待队列 唤醒、超时与获取过程中超时的归还
+ *
+ * @author kana
+ * @date 2026/10/19 00:00
+ */
+
+public class AcquireWaitQueueTest {
+
+    private ScheduledExecutorService scheduler;
+
+    private StubEngine engine;
+
+    private AcquireWaitQueue queue;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        engine = new StubEngine(scheduler);
+        queue = new AcquireWaitQueue(engine, scheduler);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void acquiredWhenEngineGrants() throws Exception {
+        CompletableFuture<Boolean> promise = queue.enqueue(1, 0, false);
+        engine.next().complete(0L);
+        assertTrue(promise.get(1, TimeUnit.SECONDS));
+        assertEquals(0, engine.refunded.get());
+    }
+
+    @Test
+    public void retriesAfterDelay() throws Exception {
+        CompletableFuture<Boolean> promise = queue.enqueue(1, 0, false);
+        engine.next().complete(20L);
+        long start = System.nanoTime();
+        engine.next().complete(0L);
+        assertTrue(promise.get(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(15));
+    }
+
+    @Test
+    public void timesOutWhileWaiting() throws Exception {
+        CompletableFuture<Boolean> promise = queue.enqueue(1, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50), true);
+        engine.next().complete(10000L);
+        assertFalse(promise.get(1, TimeUnit.SECONDS));
+        assertEquals(0, engine.refunded.get());
+    }
+
+    @Test
+    public void expiredDeadlineFailsImmediately() throws Exception {
+        CompletableFuture<Boolean> promise = queue.enqueue(1, System.nanoTime() - 1, true);
+        assertFalse(promise.get(1, TimeUnit.SECONDS));
+        assertTrue(engine.calls.isEmpty());
+    }
+
+    @Test
+    public void refundWhenAcquiredAfterTimeout() throws Exception {
+        CompletableFuture<Boolean> promise = queue.enqueue(3, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50), true);
+        CompletableFuture<Long> pending = engine.next();
+        assertFalse(promise.get(1, TimeUnit.SECONDS));
+        pending.complete(0L);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (engine.refunded.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(3, engine.refunded.get());
+    }
+
+    @Test
+    public void failureOnlyFailsHead() throws Exception {
+        CompletableFuture<Boolean> first = queue.enqueue(1, 0, false);
+        CompletableFuture<Boolean> second = queue.enqueue(1, 0, false);
+        engine.next().completeExceptionally(new IllegalStateException("boom"));
+        try {
+            first.get(1, TimeUnit.SECONDS);
+            fail("head should fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        engine.next().complete(0L);
+        assertTrue(second.get(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * 由测试决定每次获取结果的引擎
+     */
+    private static final class StubEngine extends DelayedRateLimiterEngine {
+
+        private final BlockingQueue<CompletableFuture<Long>> calls = new LinkedBlockingQueue<>();
+
+        private final AtomicLong refunded = new AtomicLong();
+
+        private StubEngine(ScheduledExecutorService scheduler) {
+            super(scheduler);
+        }
+
+        private CompletableFuture<Long> next() throws InterruptedException {
+            CompletableFuture<Long> call = calls.poll(1, TimeUnit.SECONDS);
+            assertNotNull("engine not called", call);
+            return call;
+        }
+
+        @Override
+        CompletionStage<Long> tryAcquireOrDelayAsync(long permits) {
+            CompletableFuture<Long> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        }
+
+        @Override
+        long tryAcquireOrDelay(long permits) {
+            return join(tryAcquireOrDelayAsync(permits));
+        }
+
+        @Override
+        public void refund(long permits) {
+            refunded.addAndGet(permits);
+        }
+
+        @Override
+        public RateLimiterConfig getConfig() {
+            return null;
+        }
+
+        @Override
+        public RRateLimiter getRateLimiter() {
+            return null;
+        }
+    }
+}
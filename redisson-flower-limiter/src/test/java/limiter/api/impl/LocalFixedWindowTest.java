@@ -0,0 +1,83 @@
+package limiter.api.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 本地固定窗口 窗口内计数、窗口切换与归还
+ *
+ * @author kana
+ * @date 2026/10/18 23:50
+ */
+
+public class LocalFixedWindowTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void countWithinWindow() {
+        LocalFixedWindow window = new LocalFixedWindow(3, 10000, null, null, scheduler);
+        assertEquals(0, window.tryAcquireOrDelay(2));
+        assertEquals(0, window.tryAcquireOrDelay(1));
+        long delay = window.tryAcquireOrDelay(1);
+        assertTrue("delay " + delay, delay > 0 && delay <= 10000);
+    }
+
+    @Test
+    public void rolloverResetsCount() throws InterruptedException {
+        LocalFixedWindow window = new LocalFixedWindow(3, 200, null, null, scheduler);
+        assertEquals(0, window.tryAcquireOrDelay(3));
+        long delay = window.tryAcquireOrDelay(1);
+        assertTrue("delay " + delay, delay > 0 && delay <= 200);
+        Thread.sleep(delay + 20);
+        assertEquals(0, window.tryAcquireOrDelay(3));
+    }
+
+    @Test
+    public void refundWithinWindow() {
+        LocalFixedWindow window = new LocalFixedWindow(3, 10000, null, null, scheduler);
+        assertEquals(0, window.tryAcquireOrDelay(3));
+        window.refund(2);
+        assertEquals(0, window.tryAcquireOrDelay(2));
+        assertTrue(window.tryAcquireOrDelay(1) > 0);
+    }
+
+    @Test
+    public void refundNotBelowZero() {
+        LocalFixedWindow window = new LocalFixedWindow(3, 10000, null, null, scheduler);
+        assertEquals(0, window.tryAcquireOrDelay(1));
+        window.refund(5);
+        assertEquals(0, window.tryAcquireOrDelay(3));
+        assertTrue(window.tryAcquireOrDelay(1) > 0);
+    }
+
+    @Test
+    public void supportsUpToMaxCount() {
+        assertTrue(LocalFixedWindow.supports(LocalFixedWindow.MAX_COUNT));
+        assertFalse(LocalFixedWindow.supports(LocalFixedWindow.MAX_COUNT + 1));
+        assertFalse(LocalFixedWindow.supports(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rateAboveMaxCountRejected() {
+        new LocalFixedWindow(LocalFixedWindow.MAX_COUNT + 1, 1000, null, null, scheduler);
+    }
+}
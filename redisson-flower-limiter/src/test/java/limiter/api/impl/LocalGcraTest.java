@@ -0,0 +1,76 @@
+package limiter.api.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 本地GCRA与漏桶 突发、发放间隔与归还
+ *
+ * @author kana
+ * @date 2026/10/18 23:45
+ */
+
+public class LocalGcraTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void burstThenEmissionInterval() {
+        LocalGcra gcra = new LocalGcra(10, 1000, 10, null, null, scheduler);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, gcra.tryAcquireOrDelay(1));
+        }
+        long delay = gcra.tryAcquireOrDelay(1);
+        assertTrue("delay " + delay, delay > 0 && delay <= 100);
+    }
+
+    @Test
+    public void leakyBucketAllowsNoBurst() throws InterruptedException {
+        LocalGcra gcra = new LocalGcra(10, 1000, 1, null, null, scheduler);
+        assertEquals(0, gcra.tryAcquireOrDelay(1));
+        long delay = gcra.tryAcquireOrDelay(1);
+        assertTrue("delay " + delay, delay > 0 && delay <= 100);
+        Thread.sleep(delay + 20);
+        assertEquals(0, gcra.tryAcquireOrDelay(1));
+    }
+
+    @Test
+    public void refundRestoresEmission() {
+        LocalGcra gcra = new LocalGcra(5, 10000, 5, null, null, scheduler);
+        assertEquals(0, gcra.tryAcquireOrDelay(5));
+        assertTrue(gcra.tryAcquireOrDelay(1) > 0);
+        gcra.refund(2);
+        assertEquals(0, gcra.tryAcquireOrDelay(2));
+        assertTrue(gcra.tryAcquireOrDelay(1) > 0);
+    }
+
+    @Test
+    public void refundNotBeyondNow() {
+        LocalGcra gcra = new LocalGcra(5, 10000, 5, null, null, scheduler);
+        gcra.refund(3);
+        assertEquals(0, gcra.tryAcquireOrDelay(5));
+        assertTrue(gcra.tryAcquireOrDelay(1) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void permitsAboveRateRejected() {
+        new LocalGcra(5, 1000, 5, null, null, scheduler).tryAcquireOrDelay(6);
+    }
+}
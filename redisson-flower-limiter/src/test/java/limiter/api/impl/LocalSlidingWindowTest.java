@@ -0,0 +1,74 @@
+package limiter.api.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 本地滑动窗口 窗口内计数、上一窗口加权、窗口切换与归还
+ *
+ * @author kana
+ * @date 2026/10/18 23:55
+ */
+
+public class LocalSlidingWindowTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void countWithinWindow() {
+        LocalSlidingWindow window = new LocalSlidingWindow(4, 10000, null, null, scheduler);
+        assertEquals(0, window.tryAcquireOrDelay(3));
+        assertEquals(0, window.tryAcquireOrDelay(1));
+        assertTrue(window.tryAcquireOrDelay(1) > 0);
+    }
+
+    @Test
+    public void previousWindowWeighted() throws InterruptedException {
+        LocalSlidingWindow window = new LocalSlidingWindow(4, 400, null, null, scheduler);
+        assertEquals(0, window.tryAcquireOrDelay(4));
+        long delay = window.tryAcquireOrDelay(1);
+        assertTrue("delay " + delay, delay > 0 && delay <= 400);
+        // 刚进入下一个窗口时上一个窗口几乎全部计入
+        Thread.sleep(delay + 10);
+        assertTrue(window.tryAcquireOrDelay(4) > 0);
+    }
+
+    @Test
+    public void rolloverAfterTwoWindows() throws InterruptedException {
+        LocalSlidingWindow window = new LocalSlidingWindow(4, 100, null, null, scheduler);
+        assertEquals(0, window.tryAcquireOrDelay(4));
+        Thread.sleep(220);
+        assertEquals(0, window.tryAcquireOrDelay(4));
+    }
+
+    @Test
+    public void refundWithinWindow() {
+        LocalSlidingWindow window = new LocalSlidingWindow(4, 10000, null, null, scheduler);
+        assertEquals(0, window.tryAcquireOrDelay(4));
+        window.refund(2);
+        assertEquals(0, window.tryAcquireOrDelay(2));
+        assertTrue(window.tryAcquireOrDelay(1) > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void permitsAboveRateRejected() {
+        new LocalSlidingWindow(4, 1000, null, null, scheduler).tryAcquireOrDelay(5);
+    }
+}
@@ -0,0 +1,100 @@
+package limiter.api.impl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 本地令牌桶 突发、补充与归还
+ *
+ * @author kana
+ * @date 2026/10/18 23:40
+ */
+
+public class LocalTokenBucketTest {
+
+    private ScheduledExecutorService scheduler;
+
+    @Before
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void burstUpToCapacity() {
+        LocalTokenBucket bucket = new LocalTokenBucket(3, 1000, null, null, scheduler);
+        assertTrue(bucket.tryAcquire(2));
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test
+    public void refillAfterInterval() throws InterruptedException {
+        LocalTokenBucket bucket = new LocalTokenBucket(2, 200, null, null, scheduler);
+        assertTrue(bucket.tryAcquire(2));
+        assertFalse(bucket.tryAcquire(1));
+        Thread.sleep(120);
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+        Thread.sleep(250);
+        assertTrue(bucket.tryAcquire(2));
+    }
+
+    @Test
+    public void delayUntilNextToken() {
+        LocalTokenBucket bucket = new LocalTokenBucket(2, 200, null, null, scheduler);
+        assertEquals(0, bucket.tryAcquireOrDelay(2));
+        long delay = bucket.tryAcquireOrDelay(1);
+        assertTrue("delay " + delay, delay > 0 && delay <= 100);
+    }
+
+    @Test
+    public void refundRestoresTokens() {
+        LocalTokenBucket bucket = new LocalTokenBucket(3, 10000, null, null, scheduler);
+        assertTrue(bucket.tryAcquire(3));
+        bucket.refund(2);
+        assertTrue(bucket.tryAcquire(2));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test
+    public void refundCappedAtCapacity() {
+        LocalTokenBucket bucket = new LocalTokenBucket(3, 10000, null, null, scheduler);
+        assertTrue(bucket.tryAcquire(1));
+        bucket.refund(5);
+        assertTrue(bucket.tryAcquire(3));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test
+    public void inheritKeepsRemainingTokens() {
+        LocalTokenBucket previous = new LocalTokenBucket(5, 10000, null, null, scheduler);
+        assertTrue(previous.tryAcquire(4));
+        LocalTokenBucket bucket = new LocalTokenBucket(3, 10000, null, null, scheduler);
+        bucket.inherit(previous);
+        assertTrue(bucket.tryAcquire(1));
+        assertFalse(bucket.tryAcquire(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void permitsAboveCapacityRejected() {
+        new LocalTokenBucket(3, 1000, null, null, scheduler).tryAcquire(4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityAboveMaxRejected() {
+        new LocalTokenBucket(LocalTokenBucket.MAX_TOKENS + 1, 1000, null, null, scheduler);
+    }
+}
@@ -0,0 +1,59 @@
+package limiter.api.impl;
+
+import org.junit.Test;
+import org.redisson.api.RateLimiterConfig;
+import org.redisson.api.RateType;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 运行时覆盖配置的解析与应用
+ *
+ * @author kana
+ * @date 2026/10/19 00:05
+ */
+
+public class RateOverrideTest {
+
+    @Test
+    public void parseRateOnly() {
+        RateOverride override = RateOverride.parse("100");
+        assertEquals(new RateOverride(100, 0), override);
+        assertEquals("100", override.format());
+        RateLimiterConfig config = override.apply(RateType.OVERALL, 1000);
+        assertEquals(RateType.OVERALL, config.getRateType());
+        assertEquals(Long.valueOf(100), config.getRate());
+        assertEquals(Long.valueOf(1000), config.getRateInterval());
+    }
+
+    @Test
+    public void parseRateAndInterval() {
+        RateOverride override = RateOverride.parse(" 10 / 500 ");
+        assertEquals(new RateOverride(10, 500), override);
+        assertEquals("10/500", override.format());
+        RateLimiterConfig config = override.apply(RateType.PER_CLIENT, 1000);
+        assertEquals(RateType.PER_CLIENT, config.getRateType());
+        assertEquals(Long.valueOf(10), config.getRate());
+        assertEquals(Long.valueOf(500), config.getRateInterval());
+    }
+
+    @Test
+    public void formatRoundTrip() {
+        assertEquals(new RateOverride(7, 250), RateOverride.parse(new RateOverride(7, 250).format()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroRateRejected() {
+        RateOverride.parse("0");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeIntervalRejected() {
+        RateOverride.parse("10/-1");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void malformedRejected() {
+        RateOverride.parse("ten/1000");
+    }
+}
@@ -0,0 +1,118 @@
+package limiter.aspect;
+
+import limiter.exception.ParamException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * 入参提取器 表达式编译、属性路径与令牌数计算
+ *
+ * @author kana
+ * @date 2026/10/19 00:15
+ */
+
+public class ArgumentExtractorTest {
+
+    @Test
+    public void wholeArgument() {
+        assertEquals("u1", ArgumentExtractor.compile("#p1").extract(new Object[]{"x", "u1"}));
+    }
+
+    @Test
+    public void propertyPath() {
+        Order order = new Order(new User("t1"), Arrays.asList("a", "b", "c"));
+        assertEquals("t1", ArgumentExtractor.compile("#p0.user.tenantId").extract(new Object[]{order}));
+    }
+
+    @Test
+    public void firstElementOfListAndArray() {
+        assertEquals("a", ArgumentExtractor.compile("#p0").extract(new Object[]{Arrays.asList("a", "b")}));
+        assertEquals("x", ArgumentExtractor.compile("#p0").extract(new Object[]{new String[]{"x", "y"}}));
+        Object[] args = {Collections.singletonList(new User("t2"))};
+        assertEquals("t2", ArgumentExtractor.compile("#p0.tenantId").extract(args));
+    }
+
+    @Test
+    public void permitsFromNumberCollectionMapAndArray() {
+        Order order = new Order(new User("t1"), Arrays.asList("a", "b", "c"));
+        assertEquals(3, ArgumentExtractor.compile("#p0.items").extractPermits(new Object[]{order}));
+        assertEquals(3, ArgumentExtractor.compile("#p0.items.size()").extractPermits(new Object[]{order}));
+        assertEquals(5, ArgumentExtractor.compile("#p0").extractPermits(new Object[]{5}));
+        Map<String, Integer> map = new HashMap<>();
+        map.put("k", 1);
+        assertEquals(1, ArgumentExtractor.compile("#p0").extractPermits(new Object[]{map}));
+        assertEquals(2, ArgumentExtractor.compile("#p0.length").extractPermits(new Object[]{new int[2]}));
+    }
+
+    @Test(expected = ParamException.class)
+    public void permitsFromStringRejected() {
+        ArgumentExtractor.compile("#p0").extractPermits(new Object[]{"abc"});
+    }
+
+    @Test
+    public void invalidExpressionRejectedAtCompile() {
+        assertRejected("p0");
+        assertRejected("#px");
+        assertRejected("#p0..name");
+    }
+
+    @Test(expected = ParamException.class)
+    public void missingPropertyRejectedAtExtract() {
+        ArgumentExtractor.compile("#p0.missing").extract(new Object[]{new User("t1")});
+    }
+
+    @Test(expected = ParamException.class)
+    public void indexOutOfRangeRejectedAtExtract() {
+        ArgumentExtractor.compile("#p2").extract(new Object[]{"a"});
+    }
+
+    private static void assertRejected(String expression) {
+        try {
+            ArgumentExtractor.compile(expression);
+            fail(expression + " should be rejected");
+        } catch (ParamException e) {
+            assertEquals(expression, e.getParam());
+        }
+    }
+
+    public static class User {
+
+        private final String tenantId;
+
+        public User(String tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        public String getTenantId() {
+            return tenantId;
+        }
+    }
+
+    public static class Order {
+
+        private final User user;
+
+        private final List<String> items;
+
+        public Order(User user, List<String> items) {
+            this.user = user;
+            this.items = items;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public List<String> getItems() {
+            return items;
+        }
+    }
+}
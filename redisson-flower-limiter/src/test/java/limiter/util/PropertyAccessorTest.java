@@ -0,0 +1,116 @@
+package limiter.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 属性读取器 getter、字段、无参方法与数组长度的解析
+ *
+ * @author kana
+ * @date 2026/10/19 00:10
+ */
+
+public class PropertyAccessorTest {
+
+    @Test
+    public void publicGetter() throws Throwable {
+        assertEquals("t1", PropertyAccessor.of("tenantId").get(new User("t1", true)));
+    }
+
+    @Test
+    public void booleanGetter() throws Throwable {
+        assertEquals(Boolean.TRUE, PropertyAccessor.of("vip").get(new User("t1", true)));
+    }
+
+    @Test
+    public void privateFieldOnApplicationClass() throws Throwable {
+        assertEquals(42L, PropertyAccessor.of("count").get(new Hidden(42L)));
+    }
+
+    @Test
+    public void methodOnNonPublicRuntimeType() throws Throwable {
+        List<String> list = Collections.unmodifiableList(new ArrayList<>(Arrays.asList("a", "b")));
+        assertEquals(2, PropertyAccessor.of("size()").get(list));
+        assertEquals(Boolean.FALSE, PropertyAccessor.of("empty").get(list));
+    }
+
+    @Test
+    public void arrayLength() throws Throwable {
+        assertEquals(3, PropertyAccessor.of("length").get(new String[]{"a", "b", "c"}));
+    }
+
+    @Test
+    public void resolvedPerRuntimeType() throws Throwable {
+        PropertyAccessor accessor = PropertyAccessor.of("size()");
+        assertEquals(1, accessor.get(Collections.singletonList("a")));
+        assertEquals(0, accessor.get(Collections.emptySet()));
+    }
+
+    @Test
+    public void missingPropertyReportsType() throws Throwable {
+        try {
+            PropertyAccessor.of("missing").get(new User("t1", true));
+            fail("missing property should fail");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("[missing]"));
+            assertTrue(e.getMessage(), e.getMessage().contains(User.class.getName()));
+        }
+    }
+
+    @Test
+    public void privateFieldOnJdkTypeRejected() throws Throwable {
+        try {
+            PropertyAccessor.of("hash").get("abc");
+            fail("private JDK field should fail");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("non-public property [hash]"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nullTargetRejected() throws Throwable {
+        PropertyAccessor.of("tenantId").get(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blankPropertyRejected() {
+        PropertyAccessor.of(" ");
+    }
+
+    public static class User {
+
+        private final String tenantId;
+
+        private final boolean vip;
+
+        public User(String tenantId, boolean vip) {
+            this.tenantId = tenantId;
+            this.vip = vip;
+        }
+
+        public String getTenantId() {
+            return tenantId;
+        }
+
+        public boolean isVip() {
+            return vip;
+        }
+    }
+
+    private static class Hidden {
+
+        private final long count;
+
+        private Hidden(long count) {
+            this.count = count;
+        }
+    }
+}